@@ -0,0 +1,449 @@
+package com.nostra13.universalimageloader.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.disc.DiscCacheAware;
+import com.nostra13.universalimageloader.cache.disc.EditableDiscCache;
+import com.nostra13.universalimageloader.cache.disc.impl.FileCountLimitedDiscCache;
+import com.nostra13.universalimageloader.cache.disc.impl.JournaledDiscCache;
+import com.nostra13.universalimageloader.cache.disc.impl.LimitedAgeDiscCache;
+import com.nostra13.universalimageloader.cache.disc.impl.PolicyLimitedDiscCache;
+import com.nostra13.universalimageloader.cache.disc.impl.TotalSizeLimitedDiscCache;
+import com.nostra13.universalimageloader.cache.disc.impl.UnlimitedDiscCache;
+import com.nostra13.universalimageloader.cache.disc.policy.FileCountPolicy;
+import com.nostra13.universalimageloader.cache.disc.policy.TotalSizePolicy;
+import com.nostra13.universalimageloader.cache.memory.BaseMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheAware;
+import com.nostra13.universalimageloader.cache.memory.impl.FIFOLimitedMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.FuzzyKeyMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.LRULimitedMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.LargestLimitedMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.LimitedAgeMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.UsingFreqLimitedMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.WeakMemoryCache;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.MemoryCacheKeyUtil;
+
+/**
+ * Benchmark of memory cache and disc cache implementations. Runs on desktop JVM: every cache access is a "get, and
+ * put on miss" operation for key chosen by {@link ZipfianGenerator}. Bitmap sizes and file sizes are defined by stub
+ * size function of key. For every cache and thread count it prints throughput, latency percentiles and hit ratio.<br />
+ * Hit ratio isn't printed ("n/a") for caches which keep bitmaps by soft or weak references ({@link BaseMemoryCache}
+ * subclasses): on desktop JVM these references are cleared rarely, so such cache hits almost like unlimited one.<br />
+ * <br />
+ * Library is compiled against <b>android.jar</b> as usual. JVM replacements of {@link Bitmap} and
+ * {@link android.util.Log Log} (<b>benchmark/stubs</b>) must precede <b>android.jar</b> in runtime classpath:
+ *
+ * <pre>
+ * javac -cp $ANDROID_JAR -d bin/lib $(find src -name '*.java')
+ * javac -cp $ANDROID_JAR:bin/lib -d bin/benchmark $(find benchmark/src -name '*.java')
+ * javac -d bin/stubs $(find benchmark/stubs -name '*.java')
+ * java -cp bin/stubs:bin/benchmark:bin/lib:$ANDROID_JAR com.nostra13.universalimageloader.benchmark.CacheBenchmark [threads] [keys] [operations]
+ * </pre>
+ */
+public class CacheBenchmark {
+
+	private static final int DEFAULT_THREAD_COUNT = 4;
+	private static final int DEFAULT_KEY_COUNT = 10000;
+	private static final int DEFAULT_OPERATION_COUNT = 400000;
+	/** Disc operations are much slower than memory operations so they are run less times */
+	private static final int DISC_OPERATION_DIVIDER = 20;
+	private static final double ZIPFIAN_EXPONENT = 0.99;
+
+	private static final int MEMORY_CACHE_SIZE = 4 * 1024 * 1024;
+	private static final int DISC_CACHE_SIZE = 8 * 1024 * 1024;
+	private static final int DISC_CACHE_FILE_COUNT = 1000;
+	private static final long CACHE_MAX_AGE = 60 * 60; // seconds
+
+	private static final int[] THUMBNAIL_SIZES = { 48, 64, 72, 96, 128 };
+	private static final int MIN_FILE_SIZE = 1024;
+	private static final int MAX_FILE_SIZE = 32 * 1024;
+
+	private static final String RESULT_FORMAT = "%-28s %7s %12s %10s %10s %10s %8s%n";
+
+	public static void main(String[] args) throws Exception {
+		int threadCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREAD_COUNT;
+		int keyCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_KEY_COUNT;
+		int operationCount = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_OPERATION_COUNT;
+
+		ZipfianGenerator keyGenerator = new ZipfianGenerator(keyCount, ZIPFIAN_EXPONENT);
+		int[] threadCounts = threadCount > 1 ? new int[] { 1, threadCount } : new int[] { 1 };
+
+		System.out.printf(RESULT_FORMAT, "cache", "threads", "ops/s", "p50 (us)", "p99 (us)", "p99.9 (us)", "hit %");
+		for (CacheUnderTest cache : createMemoryCaches(keyCount)) {
+			for (int threads : threadCounts) {
+				run(cache, keyGenerator, threads, operationCount);
+			}
+		}
+		for (CacheUnderTest cache : createDiscCaches(keyCount)) {
+			for (int threads : threadCounts) {
+				run(cache, keyGenerator, threads, operationCount / DISC_OPERATION_DIVIDER);
+			}
+		}
+	}
+
+	private static List<CacheUnderTest> createMemoryCaches(int keyCount) {
+		List<CacheUnderTest> caches = new ArrayList<CacheUnderTest>();
+		caches.add(new MemoryCacheUnderTest("LruMemoryCache", keyCount) {
+			@Override
+			MemoryCacheAware<String, Bitmap> createCache() {
+				return new LruMemoryCache(MEMORY_CACHE_SIZE);
+			}
+		});
+		caches.add(new MemoryCacheUnderTest("LRULimitedMemoryCache", keyCount) {
+			@Override
+			MemoryCacheAware<String, Bitmap> createCache() {
+				return new LRULimitedMemoryCache(MEMORY_CACHE_SIZE);
+			}
+		});
+		caches.add(new MemoryCacheUnderTest("FIFOLimitedMemoryCache", keyCount) {
+			@Override
+			MemoryCacheAware<String, Bitmap> createCache() {
+				return new FIFOLimitedMemoryCache(MEMORY_CACHE_SIZE);
+			}
+		});
+		caches.add(new MemoryCacheUnderTest("LargestLimitedMemoryCache", keyCount) {
+			@Override
+			MemoryCacheAware<String, Bitmap> createCache() {
+				return new LargestLimitedMemoryCache(MEMORY_CACHE_SIZE);
+			}
+		});
+		caches.add(new MemoryCacheUnderTest("UsingFreqLimitedMemoryCache", keyCount) {
+			@Override
+			MemoryCacheAware<String, Bitmap> createCache() {
+				return new UsingFreqLimitedMemoryCache(MEMORY_CACHE_SIZE);
+			}
+		});
+		caches.add(new MemoryCacheUnderTest("LimitedAgeMemoryCache", keyCount) {
+			@Override
+			MemoryCacheAware<String, Bitmap> createCache() {
+				return new LimitedAgeMemoryCache<String, Bitmap>(new LruMemoryCache(MEMORY_CACHE_SIZE), CACHE_MAX_AGE);
+			}
+		});
+		caches.add(new MemoryCacheUnderTest("FuzzyKeyMemoryCache", keyCount) {
+			@Override
+			MemoryCacheAware<String, Bitmap> createCache() {
+				return new FuzzyKeyMemoryCache<String, Bitmap>(new LruMemoryCache(MEMORY_CACHE_SIZE), MemoryCacheKeyUtil.createFuzzyKeyComparator());
+			}
+		});
+		caches.add(new MemoryCacheUnderTest("WeakMemoryCache", keyCount) {
+			@Override
+			MemoryCacheAware<String, Bitmap> createCache() {
+				return new WeakMemoryCache();
+			}
+		});
+		return caches;
+	}
+
+	private static List<CacheUnderTest> createDiscCaches(int keyCount) {
+		List<CacheUnderTest> caches = new ArrayList<CacheUnderTest>();
+		caches.add(new DiscCacheUnderTest("UnlimitedDiscCache", keyCount) {
+			@Override
+			DiscCacheAware createCache(File cacheDir) {
+				return new UnlimitedDiscCache(cacheDir);
+			}
+		});
+		caches.add(new DiscCacheUnderTest("TotalSizeLimitedDiscCache", keyCount) {
+			@Override
+			DiscCacheAware createCache(File cacheDir) {
+				return new TotalSizeLimitedDiscCache(cacheDir, DISC_CACHE_SIZE);
+			}
+		});
+		caches.add(new DiscCacheUnderTest("FileCountLimitedDiscCache", keyCount) {
+			@Override
+			DiscCacheAware createCache(File cacheDir) {
+				return new FileCountLimitedDiscCache(cacheDir, DISC_CACHE_FILE_COUNT);
+			}
+		});
+		caches.add(new DiscCacheUnderTest("LimitedAgeDiscCache", keyCount) {
+			@Override
+			DiscCacheAware createCache(File cacheDir) {
+				return new LimitedAgeDiscCache(cacheDir, CACHE_MAX_AGE);
+			}
+		});
+		caches.add(new DiscCacheUnderTest("JournaledDiscCache", keyCount) {
+			@Override
+			DiscCacheAware createCache(File cacheDir) {
+				return new JournaledDiscCache(cacheDir, DISC_CACHE_SIZE);
+			}
+		});
+		caches.add(new DiscCacheUnderTest("PolicyLimitedDiscCache", keyCount) {
+			@Override
+			DiscCacheAware createCache(File cacheDir) {
+				return new PolicyLimitedDiscCache(cacheDir, new TotalSizePolicy(DISC_CACHE_SIZE), new FileCountPolicy(DISC_CACHE_FILE_COUNT));
+			}
+		});
+		return caches;
+	}
+
+	/**
+	 * Runs warm-up pass and measured pass of <b>operationCount</b> operations, which are split between threads. Every
+	 * run starts with empty cache.
+	 */
+	private static void run(final CacheUnderTest cache, final ZipfianGenerator keyGenerator, int threadCount, int operationCount) throws Exception {
+		cache.setUp();
+		try {
+			final int operationsPerThread = operationCount / threadCount;
+			final long[][] latencies = new long[threadCount][operationsPerThread];
+			final AtomicLong hits = new AtomicLong();
+			final CyclicBarrier barrier = new CyclicBarrier(threadCount + 1);
+			final List<Throwable> errors = new ArrayList<Throwable>();
+
+			List<Thread> threads = new ArrayList<Thread>();
+			for (int t = 0; t < threadCount; t++) {
+				final long[] threadLatencies = latencies[t];
+				final Random random = new Random(t);
+				Thread thread = new Thread() {
+					@Override
+					public void run() {
+						try {
+							for (int i = 0; i < operationsPerThread; i++) {
+								cache.access(keyGenerator.next(random));
+							}
+							barrier.await();
+							barrier.await();
+
+							long threadHits = 0;
+							for (int i = 0; i < operationsPerThread; i++) {
+								int key = keyGenerator.next(random);
+								long start = System.nanoTime();
+								if (cache.access(key)) {
+									threadHits++;
+								}
+								threadLatencies[i] = System.nanoTime() - start;
+							}
+							hits.addAndGet(threadHits);
+						} catch (Throwable e) {
+							synchronized (errors) {
+								errors.add(e);
+							}
+							barrier.reset();
+						}
+					}
+				};
+				threads.add(thread);
+				thread.start();
+			}
+
+			barrier.await(); // warm-up is finished
+			long startTime = System.nanoTime();
+			barrier.await();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			long elapsedTime = System.nanoTime() - startTime;
+			if (!errors.isEmpty()) {
+				throw new RuntimeException("Benchmark of " + cache.name + " failed", errors.get(0));
+			}
+
+			long[] allLatencies = new long[operationsPerThread * threadCount];
+			for (int t = 0; t < threadCount; t++) {
+				System.arraycopy(latencies[t], 0, allLatencies, t * operationsPerThread, operationsPerThread);
+			}
+			Arrays.sort(allLatencies);
+
+			double throughput = allLatencies.length * 1e9 / elapsedTime;
+			String hitRatio = cache.isHitRatioMeasurable() ? String.format("%.1f", 100.0 * hits.get() / allLatencies.length) : "n/a";
+			System.out.printf(RESULT_FORMAT, cache.name, threadCount, String.format("%.0f", throughput), percentile(allLatencies, 0.5),
+					percentile(allLatencies, 0.99), percentile(allLatencies, 0.999), hitRatio);
+		} finally {
+			cache.tearDown();
+		}
+	}
+
+	/** Returns percentile of sorted latencies (in microseconds) */
+	private static String percentile(long[] sortedLatencies, double percentile) {
+		int index = (int) Math.min(sortedLatencies.length - 1, Math.round(percentile * sortedLatencies.length));
+		return String.format("%.1f", sortedLatencies[index] / 1000.0);
+	}
+
+	/** Returns image URI for key */
+	private static String getUri(int key) {
+		return "http://example.com/images/" + key + ".jpg";
+	}
+
+	/** Stub size function: returns size of decoded thumbnail for key (sizes are spread by key hash) */
+	private static ImageSize getImageSize(int key) {
+		int hash = key * 0x9E3779B1;
+		int width = THUMBNAIL_SIZES[(hash >>> 8) % THUMBNAIL_SIZES.length];
+		int height = THUMBNAIL_SIZES[(hash >>> 16) % THUMBNAIL_SIZES.length];
+		return new ImageSize(width, height);
+	}
+
+	/** Stub size function: returns size of cached image file for key */
+	private static int getFileSize(int key) {
+		int hash = key * 0x9E3779B1;
+		return MIN_FILE_SIZE + (hash >>> 8) % (MAX_FILE_SIZE - MIN_FILE_SIZE);
+	}
+
+	/** Cache which is benchmarked */
+	private static abstract class CacheUnderTest {
+
+		final String name;
+
+		CacheUnderTest(String name) {
+			this.name = name;
+		}
+
+		/** Creates empty cache */
+		abstract void setUp() throws IOException;
+
+		/**
+		 * Gets value for key from cache, puts value into cache if it wasn't found
+		 *
+		 * @return <b>true</b> - if value was found in cache
+		 */
+		abstract boolean access(int key) throws IOException;
+
+		/** Releases resources of cache */
+		abstract void tearDown();
+
+		/** Returns <b>false</b> if hit ratio depends on GC rather than on cache limit */
+		boolean isHitRatioMeasurable() {
+			return true;
+		}
+	}
+
+	private static abstract class MemoryCacheUnderTest extends CacheUnderTest {
+
+		private final String[] keys;
+		private MemoryCacheAware<String, Bitmap> cache;
+
+		MemoryCacheUnderTest(String name, int keyCount) {
+			super(name);
+			keys = new String[keyCount];
+			for (int i = 0; i < keyCount; i++) {
+				keys[i] = MemoryCacheKeyUtil.generateKey(getUri(i), getImageSize(i));
+			}
+		}
+
+		abstract MemoryCacheAware<String, Bitmap> createCache();
+
+		@Override
+		void setUp() {
+			cache = createCache();
+		}
+
+		@Override
+		boolean access(int key) {
+			String memoryCacheKey = keys[key];
+			Bitmap bitmap = cache.get(memoryCacheKey);
+			if (bitmap != null) {
+				return true;
+			}
+			ImageSize size = getImageSize(key);
+			cache.put(memoryCacheKey, Bitmap.createBitmap(size.getWidth(), size.getHeight(), Bitmap.Config.ARGB_8888));
+			return false;
+		}
+
+		@Override
+		void tearDown() {
+			cache.clear();
+			cache = null;
+		}
+
+		@Override
+		boolean isHitRatioMeasurable() {
+			return !(cache instanceof BaseMemoryCache);
+		}
+	}
+
+	private static abstract class DiscCacheUnderTest extends CacheUnderTest {
+
+		private final String[] uris;
+		private File cacheDir;
+		private DiscCacheAware cache;
+
+		DiscCacheUnderTest(String name, int keyCount) {
+			super(name);
+			uris = new String[keyCount];
+			for (int i = 0; i < keyCount; i++) {
+				uris[i] = getUri(i);
+			}
+		}
+
+		abstract DiscCacheAware createCache(File cacheDir);
+
+		@Override
+		void setUp() throws IOException {
+			cacheDir = new File(System.getProperty("java.io.tmpdir"), "uil-benchmark-" + name);
+			deleteFiles(cacheDir);
+			if (!cacheDir.mkdirs()) throw new IOException("Can't create " + cacheDir);
+			cache = createCache(cacheDir);
+		}
+
+		@Override
+		boolean access(int key) throws IOException {
+			String uri = uris[key];
+			File file = cache.get(uri);
+			if (file.exists() && readFile(file)) {
+				return true;
+			}
+			if (cache instanceof EditableDiscCache) {
+				((EditableDiscCache) cache).edit(uri);
+			}
+			writeFile(file, getFileSize(key));
+			cache.put(uri, file);
+			return false;
+		}
+
+		@Override
+		void tearDown() {
+			cache.clear();
+			deleteFiles(cacheDir);
+		}
+
+		/** Reads whole file as decoder does. Returns <b>false</b> if file was deleted by concurrent eviction. */
+		private static boolean readFile(File file) throws IOException {
+			InputStream is;
+			try {
+				is = new FileInputStream(file);
+			} catch (FileNotFoundException e) {
+				return false;
+			}
+			try {
+				byte[] buffer = new byte[8 * 1024];
+				while (is.read(buffer) != -1) {
+					// Do nothing
+				}
+			} finally {
+				is.close();
+			}
+			return true;
+		}
+
+		private static void writeFile(File file, int size) throws IOException {
+			OutputStream os = new FileOutputStream(file);
+			try {
+				os.write(new byte[size]);
+			} finally {
+				os.close();
+			}
+		}
+
+		private static void deleteFiles(File dir) {
+			File[] files = dir.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			dir.delete();
+		}
+	}
+}
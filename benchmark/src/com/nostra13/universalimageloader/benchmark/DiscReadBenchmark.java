@@ -0,0 +1,196 @@
+package com.nostra13.universalimageloader.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.nostra13.universalimageloader.core.download.ImageDownloader;
+
+/**
+ * Benchmark of reading of disc cache files as it's done on <b>cachedImageLoadingExecutor</b> path (one thread): header
+ * is read for bounds decoding, stream is reset and the whole image is read for pixels decoding. Compares stream of
+ * {@link ImageDownloader#getStream(URI)} (memory-mapped file) with former stream (<b>URL.openStream()</b> wrapped in
+ * {@link BufferedInputStream} by downloader and by decoder). Files are chosen by {@link ZipfianGenerator}, so popular
+ * files are in page cache like on device.<br />
+ * <br />
+ * Compiled and run like {@link CacheBenchmark} (no stubs are needed):
+ *
+ * <pre>
+ * java -cp bin/benchmark:bin/lib:$ANDROID_JAR com.nostra13.universalimageloader.benchmark.DiscReadBenchmark [files] [operations]
+ * </pre>
+ */
+public class DiscReadBenchmark {
+
+	private static final int DEFAULT_FILE_COUNT = 2000;
+	private static final int DEFAULT_OPERATION_COUNT = 50000;
+	private static final double ZIPFIAN_EXPONENT = 0.99;
+
+	/** Header bytes read by bounds decoding (JPEG header with EXIF data) */
+	private static final int HEADER_SIZE = 4 * 1024;
+	/** Read limit which is marked by decoder before bounds decoding */
+	private static final int HEADER_READ_LIMIT = 64 * 1024;
+	/** Size of temp storage which is used by BitmapFactory for reading of stream */
+	private static final int DECODE_BUFFER_SIZE = 16 * 1024;
+	/** Size of buffer which is added by decoder to non-markable stream */
+	private static final int DECODER_BUFFER_SIZE = 8 * 1024;
+
+	/** Sizes of cached files: avatars and thumbnails mostly, status pictures sometimes (all of them are mapped) */
+	private static final int MIN_FILE_SIZE = 2 * 1024;
+	private static final int MAX_THUMBNAIL_FILE_SIZE = 32 * 1024;
+	private static final int MAX_PICTURE_FILE_SIZE = 256 * 1024;
+	private static final int PICTURE_FREQUENCY = 10; // every 10th file
+
+	private static final String RESULT_FORMAT = "%-16s %10s %10s %10s %10s %12s%n";
+
+	public static void main(String[] args) throws Exception {
+		int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FILE_COUNT;
+		int operationCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_OPERATION_COUNT;
+
+		File cacheDir = new File(System.getProperty("java.io.tmpdir"), "uil-benchmark-disc-read");
+		URI[] fileUris = createFiles(cacheDir, fileCount);
+		try {
+			ZipfianGenerator keyGenerator = new ZipfianGenerator(fileCount, ZIPFIAN_EXPONENT);
+			ImageSource[] sources = { new BufferedSource(), new MappedSource() };
+
+			System.out.printf(RESULT_FORMAT, "source", "ops/s", "p50 (us)", "p99 (us)", "p99.9 (us)", "MB/s");
+			for (ImageSource source : sources) {
+				run(source, fileUris, keyGenerator, operationCount); // warm-up
+			}
+			for (ImageSource source : sources) {
+				run(source, fileUris, keyGenerator, operationCount);
+			}
+		} finally {
+			deleteFiles(cacheDir);
+		}
+	}
+
+	private static void run(ImageSource source, URI[] fileUris, ZipfianGenerator keyGenerator, int operationCount) throws IOException {
+		Random random = new Random(0);
+		byte[] buffer = new byte[DECODE_BUFFER_SIZE];
+		long[] latencies = new long[operationCount];
+		long byteCount = 0;
+
+		long startTime = System.nanoTime();
+		for (int i = 0; i < operationCount; i++) {
+			URI fileUri = fileUris[keyGenerator.next(random)];
+			long start = System.nanoTime();
+			byteCount += readImage(source.open(fileUri), buffer);
+			latencies[i] = System.nanoTime() - start;
+		}
+		long elapsedTime = System.nanoTime() - startTime;
+
+		Arrays.sort(latencies);
+		double throughput = operationCount * 1e9 / elapsedTime;
+		double bandwidth = byteCount * 1e9 / elapsedTime / (1024 * 1024);
+		System.out.printf(RESULT_FORMAT, source.name, String.format("%.0f", throughput), percentile(latencies, 0.5), percentile(latencies, 0.99),
+				percentile(latencies, 0.999), String.format("%.1f", bandwidth));
+	}
+
+	/** Reads image as decoder does: header for bounds, then the whole image from the beginning. Returns read bytes. */
+	private static long readImage(InputStream imageStream, byte[] buffer) throws IOException {
+		try {
+			imageStream.mark(HEADER_READ_LIMIT);
+			long byteCount = 0;
+			int headerRemaining = HEADER_SIZE;
+			int count;
+			while (headerRemaining > 0 && (count = imageStream.read(buffer, 0, Math.min(buffer.length, headerRemaining))) != -1) {
+				headerRemaining -= count;
+				byteCount += count;
+			}
+			imageStream.reset();
+			while ((count = imageStream.read(buffer)) != -1) {
+				byteCount += count;
+			}
+			return byteCount;
+		} finally {
+			imageStream.close();
+		}
+	}
+
+	/** Returns percentile of sorted latencies (in microseconds) */
+	private static String percentile(long[] sortedLatencies, double percentile) {
+		int index = (int) Math.min(sortedLatencies.length - 1, Math.round(percentile * sortedLatencies.length));
+		return String.format("%.1f", sortedLatencies[index] / 1000.0);
+	}
+
+	private static URI[] createFiles(File cacheDir, int fileCount) throws IOException {
+		deleteFiles(cacheDir);
+		if (!cacheDir.mkdirs()) throw new IOException("Can't create " + cacheDir);
+
+		Random random = new Random(0);
+		URI[] fileUris = new URI[fileCount];
+		for (int i = 0; i < fileCount; i++) {
+			int maxFileSize = i % PICTURE_FREQUENCY == 0 ? MAX_PICTURE_FILE_SIZE : MAX_THUMBNAIL_FILE_SIZE;
+			byte[] content = new byte[MIN_FILE_SIZE + random.nextInt(maxFileSize - MIN_FILE_SIZE)];
+			random.nextBytes(content);
+
+			File file = new File(cacheDir, String.valueOf(i));
+			OutputStream os = new FileOutputStream(file);
+			try {
+				os.write(content);
+			} finally {
+				os.close();
+			}
+			fileUris[i] = file.toURI();
+		}
+		return fileUris;
+	}
+
+	private static void deleteFiles(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	/** Source of image stream which is benchmarked */
+	private static abstract class ImageSource {
+
+		final String name;
+
+		ImageSource(String name) {
+			this.name = name;
+		}
+
+		/** Opens stream of cached file as decoder gets it */
+		abstract InputStream open(URI fileUri) throws IOException;
+	}
+
+	/** Former disc cache stream: buffered by downloader, then buffered again by decoder */
+	private static class BufferedSource extends ImageSource {
+
+		BufferedSource() {
+			super("buffered");
+		}
+
+		@Override
+		InputStream open(URI fileUri) throws IOException {
+			InputStream downloaderStream = new BufferedInputStream(fileUri.toURL().openStream());
+			return new BufferedInputStream(downloaderStream, DECODER_BUFFER_SIZE);
+		}
+	}
+
+	/** Current disc cache stream: memory-mapped file which is used by decoder as is */
+	private static class MappedSource extends ImageSource {
+
+		private final ImageDownloader downloader = ImageDownloader.createDefault();
+
+		MappedSource() {
+			super("mapped");
+		}
+
+		@Override
+		InputStream open(URI fileUri) throws IOException {
+			return downloader.getStream(fileUri);
+		}
+	}
+}
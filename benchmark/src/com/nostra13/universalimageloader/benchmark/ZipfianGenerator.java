@@ -0,0 +1,41 @@
+package com.nostra13.universalimageloader.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates key indexes with Zipfian distribution: probability of key with rank <b>k</b> is proportional to
+ * 1/k<sup>s</sup>. Image requests of scrolled lists follow this distribution (a few images like avatars are requested
+ * very often, most images are requested once or twice). Generator is immutable, so it can be shared between threads
+ * which use their own {@link Random}.
+ */
+final class ZipfianGenerator {
+
+	private final double[] cumulativeProbabilities;
+
+	/**
+	 * @param keyCount
+	 *            Count of keys. Generated indexes are in [0, keyCount) range, index 0 is the most popular.
+	 * @param exponent
+	 *            Skew of distribution (0.99 is used by YCSB)
+	 */
+	ZipfianGenerator(int keyCount, double exponent) {
+		cumulativeProbabilities = new double[keyCount];
+		double sum = 0;
+		for (int i = 0; i < keyCount; i++) {
+			sum += 1 / Math.pow(i + 1, exponent);
+			cumulativeProbabilities[i] = sum;
+		}
+		for (int i = 0; i < keyCount; i++) {
+			cumulativeProbabilities[i] /= sum;
+		}
+	}
+
+	int next(Random random) {
+		int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return Math.min(index, cumulativeProbabilities.length - 1);
+	}
+}
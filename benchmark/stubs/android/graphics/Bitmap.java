@@ -0,0 +1,62 @@
+package android.graphics;
+
+/**
+ * JVM replacement of Android's Bitmap for cache benchmark. Holds no pixels, only reports size of bitmap, so memory
+ * caches can be benchmarked without device. Must precede <b>android.jar</b> in runtime classpath.
+ */
+public final class Bitmap {
+
+	public enum Config {
+		ALPHA_8(1), RGB_565(2), ARGB_4444(2), ARGB_8888(4);
+
+		final int bytesPerPixel;
+
+		Config(int bytesPerPixel) {
+			this.bytesPerPixel = bytesPerPixel;
+		}
+	}
+
+	public enum CompressFormat {
+		JPEG, PNG
+	}
+
+	private final int width;
+	private final int height;
+	private final Config config;
+	private boolean recycled = false;
+
+	private Bitmap(int width, int height, Config config) {
+		this.width = width;
+		this.height = height;
+		this.config = config;
+	}
+
+	public static Bitmap createBitmap(int width, int height, Config config) {
+		if (width <= 0 || height <= 0) throw new IllegalArgumentException("width and height must be > 0");
+		return new Bitmap(width, height, config);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getRowBytes() {
+		return width * config.bytesPerPixel;
+	}
+
+	public Config getConfig() {
+		return config;
+	}
+
+	public boolean isRecycled() {
+		return recycled;
+	}
+
+	public void recycle() {
+		recycled = true;
+	}
+}
@@ -0,0 +1,46 @@
+package android.util;
+
+/**
+ * JVM replacement of Android's Log for cache benchmark. Warnings and errors are printed to standard error stream.
+ */
+public final class Log {
+
+	private Log() {
+	}
+
+	public static int d(String tag, String msg) {
+		return 0;
+	}
+
+	public static int i(String tag, String msg) {
+		return 0;
+	}
+
+	public static int w(String tag, String msg) {
+		return print(tag, msg, null);
+	}
+
+	public static int w(String tag, Throwable tr) {
+		return print(tag, null, tr);
+	}
+
+	public static int w(String tag, String msg, Throwable tr) {
+		return print(tag, msg, tr);
+	}
+
+	public static int e(String tag, String msg) {
+		return print(tag, msg, null);
+	}
+
+	public static int e(String tag, String msg, Throwable tr) {
+		return print(tag, msg, tr);
+	}
+
+	private static int print(String tag, String msg, Throwable tr) {
+		System.err.println(tag + ": " + msg);
+		if (tr != null) {
+			tr.printStackTrace();
+		}
+		return 0;
+	}
+}
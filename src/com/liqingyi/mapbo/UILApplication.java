@@ -5,6 +5,8 @@ import android.app.Application;
 import com.nostra13.universalimageloader.cache.disc.naming.Md5FileNameGenerator;
 import com.nostra13.universalimageloader.core.ImageLoader;
 import com.nostra13.universalimageloader.core.ImageLoaderConfiguration;
+import com.nostra13.universalimageloader.core.download.HttpClientImageDownloader;
+import com.weibo.net.Utility;
 
 /**
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
@@ -23,8 +25,10 @@ public class UILApplication extends Application {
 			.threadPoolSize(3)
 			.threadPriority(Thread.NORM_PRIORITY - 2)
 			.memoryCacheSize(1500000) // 1.5 Mb
+			.encodedMemoryCacheSize(2 * 1024 * 1024) // 2 Mb, back navigation between PoiActivity tabs is decoded from memory
 			.denyCacheImageMultipleSizesInMemory()
 			.discCacheFileNameGenerator(new Md5FileNameGenerator())
+			.imageDownloader(new HttpClientImageDownloader(Utility.getNewHttpClient(this))) // Keep-alive connections of app's client
 			.enableLogging() // Not necessary in common
 			.build();
 		// Initialize ImageLoader with configuration.
@@ -17,9 +17,13 @@ import com.liqingyi.mapbo.model.Status;
 import com.liqingyi.mapbo.util.UIUtils;
 import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.assist.ImageQuality;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
 
 public class PhotoAdapter extends BaseAdapter {
 
+	private static final int THUMBNAIL_MAX_SIZE_DP = 128;
+
 	private ArrayList<Status> list;
 	private DisplayImageOptions photo_options;
 	private DisplayImageOptions user_options;
@@ -30,9 +34,7 @@ public class PhotoAdapter extends BaseAdapter {
 		super();
 		this.list = list;
 		this.mInflater = LayoutInflater.from(context);
-		photo_options = new DisplayImageOptions.Builder()
-				.showStubImage(R.drawable.bg_picture).cacheInMemory()
-				.cacheOnDisc().build();
+		photo_options = createPhotoOptions(context);
 
 		user_options = new DisplayImageOptions.Builder()
 				.showStubImage(R.drawable.icon_picture).cacheInMemory()
@@ -41,6 +43,30 @@ public class PhotoAdapter extends BaseAdapter {
 
 	}
 
+	/**
+	 * Display options of thumbnails (use them to prefetch thumbnails, so
+	 * prefetched bitmaps are the same as displayed ones)
+	 */
+	public static DisplayImageOptions createPhotoOptions(Context context) {
+		// Thumbnail is wrap_content with maxHeight 128dp, so its size is
+		// unknown before the image is set
+		ImageSize thumbnailSize = getThumbnailSize(context);
+		return new DisplayImageOptions.Builder()
+				.showStubImage(R.drawable.bg_picture).cacheInMemory()
+				.cacheOnDisc()
+				.targetSize(thumbnailSize.getWidth(), thumbnailSize.getHeight())
+				.imageQuality(ImageQuality.MEDIUM).build();
+	}
+
+	/**
+	 * Size which thumbnails are decoded for
+	 */
+	private static ImageSize getThumbnailSize(Context context) {
+		int size = (int) (THUMBNAIL_MAX_SIZE_DP * context.getResources()
+				.getDisplayMetrics().density);
+		return new ImageSize(size, size);
+	}
+
 	@Override
 	public int getCount() {
 
@@ -5,6 +5,7 @@ import com.liqingyi.mapbo.R;
 import com.liqingyi.mapbo.model.Status;
 import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.process.CircleBitmapProcessor;
 
 import android.content.Context;
 import android.view.LayoutInflater;
@@ -27,7 +28,7 @@ public class TipAdapter extends BaseAdapter {
 		this.mInflater = LayoutInflater.from(context);
 		options = new DisplayImageOptions.Builder()
 				.showStubImage(R.drawable.ic_launcher).cacheInMemory()
-				.cacheOnDisc().build();
+				.cacheOnDisc().processor(new CircleBitmapProcessor()).build();
 		imageLoader = ImageLoader.getInstance();
 	}
 
@@ -8,6 +8,8 @@ import com.liqingyi.mapbo.model.Comment;
 import com.liqingyi.mapbo.model.CommentList;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshListView;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshBase.OnRefreshListener;
+import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.assist.PauseOnScrollListener;
 import com.weibo.net.Utility;
 import com.weibo.net.Weibo;
 import com.weibo.net.WeiboException;
@@ -70,6 +72,8 @@ public class CommentsFragment extends Fragment {
 			}
 		});
 
+		mPullToRefreshListView.setOnScrollListener(new PauseOnScrollListener(false, true));
+
 		actualListView = mPullToRefreshListView.getRefreshableView();
 		actualListView.setOnItemClickListener(new OnItemClickListener() {
 
@@ -86,6 +90,14 @@ public class CommentsFragment extends Fragment {
 		return view;
 	}
 
+	@Override
+	public void onDestroyView() {
+		// Fragment can be destroyed during fling, while image loading is
+		// paused by PauseOnScrollListener
+		ImageLoader.getInstance().resume();
+		super.onDestroyView();
+	}
+
 	class LoadCommentsTasks extends AsyncTask<Weibo, Integer, String> {
 
 		@Override
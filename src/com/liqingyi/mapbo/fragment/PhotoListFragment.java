@@ -27,6 +27,8 @@ import com.liqingyi.mapbo.pulltorefresh.PullToRefreshBase.OnRefreshListener;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshGridView;
 import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.assist.ImageQuality;
+import com.nostra13.universalimageloader.core.assist.PauseOnScrollListener;
 import com.weibo.net.Utility;
 import com.weibo.net.Weibo;
 import com.weibo.net.WeiboException;
@@ -78,7 +80,7 @@ public class PhotoListFragment extends Fragment implements OnClickListener {
 
 			options = new DisplayImageOptions.Builder()
 					.showStubImage(R.drawable.orign_picture).cacheInMemory()
-					.cacheOnDisc().build();
+					.cacheOnDisc().imageQuality(ImageQuality.MEDIUM).build();
 			imageLoader = ImageLoader.getInstance();
 		}
 
@@ -133,6 +135,8 @@ public class PhotoListFragment extends Fragment implements OnClickListener {
 			}
 		});
 
+		mPullToRefreshListView.setOnScrollListener(new PauseOnScrollListener(false, true));
+
 		actualListView = mPullToRefreshListView.getRefreshableView();
 		actualListView.setOnItemClickListener(new OnItemClickListener() {
 
@@ -164,6 +168,14 @@ public class PhotoListFragment extends Fragment implements OnClickListener {
 		return view;
 	}
 
+	@Override
+	public void onDestroyView() {
+		// Fragment can be destroyed during fling, while image loading is
+		// paused by PauseOnScrollListener
+		ImageLoader.getInstance().resume();
+		super.onDestroyView();
+	}
+
 	class LoadPoiPhotoListTsaks extends AsyncTask<Weibo, Integer, String> {
 
 		@Override
@@ -201,6 +213,7 @@ public class PhotoListFragment extends Fragment implements OnClickListener {
 					adapter = null;
 
 				list.addAll(statuses.getStatuses());
+				prefetchImages(statuses.getStatuses());
 				adapter = new PhotoAdapter(getActivity(), list);
 
 				actualListView.setAdapter(adapter);
@@ -213,6 +226,25 @@ public class PhotoListFragment extends Fragment implements OnClickListener {
 		}
 	}
 
+	/**
+	 * Loads images of new page in advance, so rows below the fold show
+	 * them without stub
+	 */
+	private void prefetchImages(ArrayList<Status> statuses) {
+		ArrayList<String> thumbnails = new ArrayList<String>();
+		ArrayList<String> avatars = new ArrayList<String>();
+		for (Status status : statuses) {
+			thumbnails.add(status.getThumbnail_pic());
+			if (status.getUser() != null) {
+				avatars.add(status.getUser().getProfile_image_url());
+			}
+		}
+		ImageLoader imageLoader = ImageLoader.getInstance();
+		imageLoader.prefetch(thumbnails,
+				PhotoAdapter.createPhotoOptions(getActivity()), 1);
+		imageLoader.prefetch(avatars, null, 0);
+	}
+
 	/**
 	 * 获取地点照片列表
 	 * 
@@ -23,6 +23,8 @@ import com.liqingyi.mapbo.model.SearchParameter;
 import com.liqingyi.mapbo.model.User;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshBase.OnRefreshListener;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshListView;
+import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.assist.PauseOnScrollListener;
 import com.weibo.net.Utility;
 import com.weibo.net.Weibo;
 import com.weibo.net.WeiboException;
@@ -85,6 +87,8 @@ public class PoiListFragment extends Fragment {
 			}
 		});
 
+		mPullToRefreshListView.setOnScrollListener(new PauseOnScrollListener(false, true));
+
 		actualListView = mPullToRefreshListView.getRefreshableView();
 
 		actualListView.setOnItemClickListener(new OnItemClickListener() {
@@ -105,6 +109,14 @@ public class PoiListFragment extends Fragment {
 		return view;
 	}
 
+	@Override
+	public void onDestroyView() {
+		// Fragment can be destroyed during fling, while image loading is
+		// paused by PauseOnScrollListener
+		ImageLoader.getInstance().resume();
+		super.onDestroyView();
+	}
+
 	class LoadPoiListTasks extends AsyncTask<Weibo, Integer, String> {
 
 		@Override
@@ -20,6 +20,8 @@ import com.liqingyi.mapbo.model.Statuses;
 import com.liqingyi.mapbo.model.User;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshBase.OnRefreshListener;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshListView;
+import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.assist.PauseOnScrollListener;
 import com.weibo.net.Utility;
 import com.weibo.net.Weibo;
 import com.weibo.net.WeiboException;
@@ -82,6 +84,8 @@ public class TimeLimeListFragment extends Fragment {
 			}
 		});
 
+		mPullToRefreshListView.setOnScrollListener(new PauseOnScrollListener(false, true));
+
 		actualListView = mPullToRefreshListView.getRefreshableView();
 		actualListView.setOnItemClickListener(new OnItemClickListener() {
 
@@ -98,6 +102,14 @@ public class TimeLimeListFragment extends Fragment {
 		return view;
 	}
 
+	@Override
+	public void onDestroyView() {
+		// Fragment can be destroyed during fling, while image loading is
+		// paused by PauseOnScrollListener
+		ImageLoader.getInstance().resume();
+		super.onDestroyView();
+	}
+
 	class LoadTimeLineTasks extends AsyncTask<Weibo, Integer, String> {
 
 		@Override
@@ -134,6 +146,7 @@ public class TimeLimeListFragment extends Fragment {
 					adapter = null;
 
 				list.addAll(statuses.getStatuses());
+				prefetchAvatars(statuses.getStatuses());
 				adapter = new TimeLineAdapter(getActivity(), list);
 
 				actualListView.setAdapter(adapter);
@@ -147,6 +160,20 @@ public class TimeLimeListFragment extends Fragment {
 
 	}
 
+	/**
+	 * Loads avatars of new page in advance, so rows below the fold show
+	 * them without stub
+	 */
+	private void prefetchAvatars(ArrayList<Status> statuses) {
+		ArrayList<String> avatars = new ArrayList<String>();
+		for (Status status : statuses) {
+			if (status.getUser() != null) {
+				avatars.add(status.getUser().getProfile_image_url());
+			}
+		}
+		ImageLoader.getInstance().prefetch(avatars, null, 0);
+	}
+
 	/**
 	 * 获取某个位置地点的动态
 	 * 
@@ -19,6 +19,8 @@ import com.liqingyi.mapbo.model.Statuses;
 import com.liqingyi.mapbo.model.User;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshBase.OnRefreshListener;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshListView;
+import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.assist.PauseOnScrollListener;
 import com.weibo.net.Utility;
 import com.weibo.net.Weibo;
 import com.weibo.net.WeiboException;
@@ -75,6 +77,8 @@ public class TipListFragment extends Fragment {
 			}
 		});
 
+		mPullToRefreshListView.setOnScrollListener(new PauseOnScrollListener(false, true));
+
 		actualListView = mPullToRefreshListView.getRefreshableView();
 		actualListView.setOnItemClickListener(new OnItemClickListener() {
 
@@ -91,6 +95,14 @@ public class TipListFragment extends Fragment {
 		return view;
 	}
 
+	@Override
+	public void onDestroyView() {
+		// Fragment can be destroyed during fling, while image loading is
+		// paused by PauseOnScrollListener
+		ImageLoader.getInstance().resume();
+		super.onDestroyView();
+	}
+
 	class LoadPoiTipListTsaks extends AsyncTask<Weibo, Integer, String> {
 
 		@Override
@@ -21,6 +21,8 @@ import com.liqingyi.mapbo.model.User;
 import com.liqingyi.mapbo.model.UserList;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshBase.OnRefreshListener;
 import com.liqingyi.mapbo.pulltorefresh.PullToRefreshGridView;
+import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.assist.PauseOnScrollListener;
 import com.weibo.net.Utility;
 import com.weibo.net.Weibo;
 import com.weibo.net.WeiboException;
@@ -76,6 +78,8 @@ public class UserListFragment extends Fragment {
 
 			}
 		});
+		mPullToRefreshListView.setOnScrollListener(new PauseOnScrollListener(false, true));
+
 		actualListView = mPullToRefreshListView.getRefreshableView();
 
 		actualListView.setOnItemClickListener(new OnItemClickListener() {
@@ -96,6 +100,14 @@ public class UserListFragment extends Fragment {
 		return view;
 	}
 
+	@Override
+	public void onDestroyView() {
+		// Fragment can be destroyed during fling, while image loading is
+		// paused by PauseOnScrollListener
+		ImageLoader.getInstance().resume();
+		super.onDestroyView();
+	}
+
 	class LoadPoiUserListTsaks extends AsyncTask<Weibo, Integer, String> {
 
 		@Override
@@ -1,14 +1,21 @@
 package com.liqingyi.mapbo.util;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
 
 import android.widget.ImageView;
 
+/**
+ * Avatar view. Bitmaps loaded by ImageLoader are already made circular (see CircleBitmapProcessor) before caching,
+ * so they are shown as is. Other drawables (android:src, stub and failure images) are made circular here.
+ */
 public class CornerImageView extends ImageView {
 
+	private boolean settingProcessedBitmap;
+
 	public CornerImageView(Context context) {
 		super(context);
 	}
@@ -23,11 +30,30 @@ public class CornerImageView extends ImageView {
 	}
 
 	@Override
-	public void setImageDrawable(Drawable drawable) {
+	public void setImageBitmap(Bitmap bm) {
+		settingProcessedBitmap = true;
+		try {
+			super.setImageBitmap(bm);
+		} finally {
+			settingProcessedBitmap = false;
+		}
+	}
 
-		super.setImageDrawable(new BitmapDrawable(getResources(), UIUtils
-				.getCircleBitmap(UIUtils.drawableToBitmap(drawable))));
+	@Override
+	public void setImageResource(int resId) {
+		setImageDrawable(getResources().getDrawable(resId));
+	}
 
+	@Override
+	public void setImageDrawable(Drawable drawable) {
+		if (settingProcessedBitmap || drawable == null
+				|| drawable.getIntrinsicWidth() <= 0
+				|| drawable.getIntrinsicHeight() <= 0) {
+			super.setImageDrawable(drawable);
+		} else {
+			super.setImageDrawable(new BitmapDrawable(getResources(),
+					UIUtils.getCircleBitmap(UIUtils.drawableToBitmap(drawable))));
+		}
 	}
 
 }
@@ -0,0 +1,17 @@
+package com.nostra13.universalimageloader.cache.disc;
+
+import java.io.File;
+
+/**
+ * Disc cache which tracks files while they are being written. Image loader calls {@link #edit(String)} before it starts
+ * writing of file for key, then it calls {@link #put(String, File)} if file was written successfully or
+ * {@link #abort(String)} if writing failed. {@link #get(String)} only looks up file, it doesn't start editing.
+ */
+public interface EditableDiscCache extends DiscCacheAware {
+
+	/** Is called before file for key is written (or overwritten). File isn't considered cached until it's put. */
+	void edit(String key);
+
+	/** Is called if file for key wasn't written after {@link #edit(String)}. File isn't cached then. */
+	void abort(String key);
+}
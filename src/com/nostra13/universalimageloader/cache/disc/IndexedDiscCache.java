@@ -0,0 +1,14 @@
+package com.nostra13.universalimageloader.cache.disc;
+
+/**
+ * Disc cache which keeps index of cached files in memory. Image loader checks whether image is cached on disc by
+ * {@link #contains(String)} when it chooses executor for display task, so this check doesn't touch file system.
+ */
+public interface IndexedDiscCache extends DiscCacheAware {
+
+	/**
+	 * Returns <b>true</b> - if file for key is cached completely. Check doesn't access file system and doesn't count as
+	 * usage of file (unlike {@link #get(String)}).
+	 */
+	boolean contains(String key);
+}
@@ -57,6 +57,8 @@ public abstract class LimitedDiscCache extends BaseDiscCache {
 		int size = 0;
 		File[] cachedFiles = getCacheDir().listFiles();
 		for (File cachedFile : cachedFiles) {
+			if (!cachedFile.isFile()) continue; // e.g. directory of temporary files
+
 			size += getSize(cachedFile);
 			lastUsageDates.put(cachedFile, cachedFile.lastModified());
 		}
@@ -78,13 +80,19 @@ public abstract class LimitedDiscCache extends BaseDiscCache {
 		lastUsageDates.put(file, currentTime);
 	}
 
+	/**
+	 * Returns file for key and refreshes its last usage date if file is cached. Files which aren't known by cache (not
+	 * cached yet) aren't touched.
+	 */
 	@Override
 	public File get(String key) {
 		File file = super.get(key);
 
-		Long currentTime = System.currentTimeMillis();
-		file.setLastModified(currentTime);
-		lastUsageDates.put(file, currentTime);
+		if (lastUsageDates.containsKey(file)) {
+			Long currentTime = System.currentTimeMillis();
+			file.setLastModified(currentTime);
+			lastUsageDates.put(file, currentTime);
+		}
 
 		return file;
 	}
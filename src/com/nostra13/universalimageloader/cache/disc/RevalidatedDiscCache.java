@@ -0,0 +1,25 @@
+package com.nostra13.universalimageloader.cache.disc;
+
+import java.io.File;
+
+import com.nostra13.universalimageloader.core.download.ImageValidators;
+
+/**
+ * Disc cache which keeps expired files if they can be revalidated. {@link #get(String)} returns expired file while
+ * its {@linkplain ImageValidators validators} are known, then image loader checks whether image was modified by
+ * conditional request and {@linkplain #refresh(String) refreshes} cached file instead of downloading it again.
+ */
+public interface RevalidatedDiscCache extends DiscCacheAware {
+
+	/** Same as {@link #put(String, File)} but also stores validators of image (they are used for revalidation) */
+	void put(String key, File file, ImageValidators validators);
+
+	/** Returns <b>true</b> - if file is cached for key and it's expired (it should be revalidated before using) */
+	boolean isExpired(String key);
+
+	/** Returns validators of cached file or <b>null</b> if they are unknown */
+	ImageValidators getValidators(String key);
+
+	/** Makes expired file actual again. Is called if image wasn't modified on server. */
+	void refresh(String key);
+}
@@ -0,0 +1,438 @@
+package com.nostra13.universalimageloader.cache.disc.impl;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.util.Log;
+
+import com.nostra13.universalimageloader.cache.disc.BaseDiscCache;
+import com.nostra13.universalimageloader.cache.disc.EditableDiscCache;
+import com.nostra13.universalimageloader.cache.disc.IndexedDiscCache;
+import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
+import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.utils.FileUtils;
+
+/**
+ * Disc cache limited by total cache size which keeps its state in append-only journal. If cache size exceeds specified
+ * limit then the least recently used file will be deleted.<br />
+ * Journal contains one line per operation:
+ * <ul>
+ * <li><b>DIRTY name</b> - file is being written ({@linkplain #edit(String) editing} was started but file wasn't put
+ * yet)</li>
+ * <li><b>CLEAN name size</b> - file was cached and has defined size (in bytes)</li>
+ * <li><b>READ name</b> - cached file was used (moves it to the tail of LRU order)</li>
+ * <li><b>REMOVE name</b> - file was removed from cache</li>
+ * </ul>
+ * On start the journal is replayed instead of listing and measuring cached files. Files which remained DIRTY (e.g.
+ * process was killed during writing) are deleted. Lookup of file which isn't cached doesn't change the journal. Journal is compacted when it contains too many redundant lines.<br />
+ * <b>NOTE:</b> All cache operations are O(1) (besides eviction of several files and journal compaction).
+ * 
+ * @see BaseDiscCache
+ */
+public class JournaledDiscCache extends BaseDiscCache implements EditableDiscCache, IndexedDiscCache {
+
+	static final String JOURNAL_FILE = "journal";
+	static final String JOURNAL_FILE_TMP = "journal.tmp";
+	static final String MAGIC = "uil.JournaledDiscCache";
+	static final String VERSION = "1";
+
+	private static final String CLEAN = "CLEAN";
+	private static final String DIRTY = "DIRTY";
+	private static final String REMOVE = "REMOVE";
+	private static final String READ = "READ";
+
+	private static final String JOURNAL_CHARSET = "US-ASCII";
+	/** Journal is compacted when count of redundant lines exceeds this value and count of entries */
+	private static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+
+	private static final String WARNING_JOURNAL_IS_CORRUPT = "Disc cache journal %s is corrupt: %s. Cache will be rebuilt.";
+	private static final String WARNING_JOURNAL_WRITING = "Can't write disc cache journal";
+
+	private final File journalFile;
+	private final File journalFileTmp;
+	private final long maxCacheSize;
+
+	/** Cached files in LRU order (the least recently used is the first). Guarded by <b>this</b>. */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(0, 0.75f, true);
+	private long cacheSize = 0;
+	private int redundantOpCount = 0;
+	private Writer journalWriter;
+
+	/**
+	 * @param cacheDir
+	 *            Directory for file caching. <b>Important:</b> Specify separate folder for cached files. It's needed
+	 *            for right cache limit work.
+	 * @param maxCacheSize
+	 *            Maximum cache directory size (in bytes). If cache size exceeds this limit then the least recently used
+	 *            file will be deleted.
+	 */
+	public JournaledDiscCache(File cacheDir, long maxCacheSize) {
+		this(cacheDir, FileNameGenerator.createDefault(), maxCacheSize);
+	}
+
+	/**
+	 * @param cacheDir
+	 *            Directory for file caching. <b>Important:</b> Specify separate folder for cached files. It's needed
+	 *            for right cache limit work.
+	 * @param fileNameGenerator
+	 *            Name generator for cached files
+	 * @param maxCacheSize
+	 *            Maximum cache directory size (in bytes). If cache size exceeds this limit then the least recently used
+	 *            file will be deleted.
+	 */
+	public JournaledDiscCache(File cacheDir, FileNameGenerator fileNameGenerator, long maxCacheSize) {
+		super(cacheDir, fileNameGenerator);
+		if (maxCacheSize <= 0) throw new IllegalArgumentException("maxCacheSize must be a positive number");
+
+		this.maxCacheSize = maxCacheSize;
+		journalFile = new File(cacheDir, JOURNAL_FILE);
+		journalFileTmp = new File(cacheDir, JOURNAL_FILE_TMP);
+		init();
+	}
+
+	private synchronized void init() {
+		boolean journalIsComplete = false;
+		if (journalFile.exists()) {
+			try {
+				journalIsComplete = readJournal();
+			} catch (IOException e) {
+				Log.w(ImageLoader.TAG, String.format(WARNING_JOURNAL_IS_CORRUPT, journalFile, e.getMessage()));
+				entries.clear();
+				indexCacheDir();
+			}
+		} else {
+			// Cache directory could be filled by another disc cache before
+			indexCacheDir();
+		}
+		deleteDirtyFiles();
+		trimToSize();
+		if (journalIsComplete) {
+			openJournalWriter();
+		} else {
+			rebuildJournal();
+		}
+	}
+
+	/**
+	 * Replays journal
+	 * 
+	 * @return <b>true</b> - if the whole journal was read; <b>false</b> - if last line was written partially (journal
+	 *         must be rebuilt)
+	 */
+	private boolean readJournal() throws IOException {
+		String journal = readFully(journalFile);
+		String[] lines = journal.split("\n", -1);
+		if (lines.length < 3 || !MAGIC.equals(lines[0]) || !VERSION.equals(lines[1])) {
+			throw new IOException("unexpected journal header");
+		}
+
+		int lineCount = 0;
+		// Last element is text after the last line break. It isn't empty only if last line was written partially.
+		for (int i = 2; i < lines.length - 1; i++) {
+			String line = lines[i];
+			if (line.length() == 0) continue;
+
+			readJournalLine(line);
+			lineCount++;
+		}
+		redundantOpCount = lineCount - entries.size();
+		return lines[lines.length - 1].length() == 0;
+	}
+
+	private void readJournalLine(String line) throws IOException {
+		String[] parts = line.split(" ");
+		if (parts.length < 2) {
+			throw new IOException("unexpected journal line: " + line);
+		}
+		String operation = parts[0];
+		String name = parts[1];
+		if (CLEAN.equals(operation) && parts.length == 3) {
+			Entry entry = new Entry();
+			entry.clean = true;
+			try {
+				entry.length = Long.parseLong(parts[2]);
+			} catch (NumberFormatException e) {
+				throw new IOException("unexpected journal line: " + line);
+			}
+			entries.put(name, entry);
+		} else if (DIRTY.equals(operation) && parts.length == 2) {
+			Entry entry = entries.get(name);
+			if (entry == null) {
+				entries.put(name, new Entry());
+			} else {
+				// Cached file is being overwritten
+				entry.clean = false;
+			}
+		} else if (REMOVE.equals(operation) && parts.length == 2) {
+			entries.remove(name);
+		} else if (READ.equals(operation) && parts.length == 2) {
+			entries.get(name); // call "get" for LRU logic
+		} else {
+			throw new IOException("unexpected journal line: " + line);
+		}
+	}
+
+	/** Fills cache entries by files from cache directory (from the oldest file to the newest) */
+	private void indexCacheDir() {
+		File[] cachedFiles = getCacheDir().listFiles();
+		if (cachedFiles == null) return;
+
+		Arrays.sort(cachedFiles, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				long lastModified1 = f1.lastModified();
+				long lastModified2 = f2.lastModified();
+				return lastModified1 < lastModified2 ? -1 : (lastModified1 == lastModified2 ? 0 : 1);
+			}
+		});
+		for (File cachedFile : cachedFiles) {
+			String name = cachedFile.getName();
+			if (cachedFile.isFile() && !JOURNAL_FILE.equals(name) && !JOURNAL_FILE_TMP.equals(name)) {
+				Entry entry = new Entry();
+				entry.clean = true;
+				entry.length = cachedFile.length();
+				entries.put(name, entry);
+			}
+		}
+	}
+
+	/** Deletes files which weren't cached completely and computes cache size */
+	private void deleteDirtyFiles() {
+		cacheSize = 0;
+		for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, Entry> mapEntry = it.next();
+			Entry entry = mapEntry.getValue();
+			if (entry.clean) {
+				cacheSize += entry.length;
+			} else {
+				new File(getCacheDir(), mapEntry.getKey()).delete();
+				it.remove();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void put(String key, File file) {
+		String name = file.getName();
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(name, entry);
+		} else {
+			if (entry.clean) {
+				cacheSize -= entry.length;
+			}
+			redundantOpCount++; // previous CLEAN or DIRTY line
+		}
+		entry.clean = true;
+		entry.length = file.length();
+		cacheSize += entry.length;
+
+		writeJournalLine(CLEAN + ' ' + name + ' ' + entry.length, true);
+		trimToSize();
+		compactJournalIfNeeded();
+	}
+
+	/** Returns file for key. If file is cached then its usage is recorded for LRU logic. */
+	@Override
+	public synchronized File get(String key) {
+		File file = super.get(key);
+		String name = file.getName();
+		Entry entry = entries.get(name);
+		if (entry != null && entry.clean) {
+			writeJournalLine(READ + ' ' + name, false);
+			redundantOpCount++;
+			compactJournalIfNeeded();
+		}
+		return file;
+	}
+
+	/** Returns <b>true</b> - if file for key is cached completely. Journal isn't changed. */
+	@Override
+	public synchronized boolean contains(String key) {
+		Entry entry = entries.get(super.get(key).getName());
+		return entry != null && entry.clean;
+	}
+
+	/**
+	 * Records file for key as <b>dirty</b> (it's being written) until {@link #put(String, File)} or
+	 * {@link #abort(String)} is called for it. Cached file which is overwritten doesn't count in cache size meanwhile.
+	 */
+	@Override
+	public synchronized void edit(String key) {
+		String name = super.get(key).getName();
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			entries.put(name, new Entry());
+		} else if (entry.clean) {
+			cacheSize -= entry.length;
+			entry.clean = false;
+			redundantOpCount++;
+		} else {
+			return; // already dirty
+		}
+		writeJournalLine(DIRTY + ' ' + name, true);
+	}
+
+	/** Removes dirty file for key from cache (with partially written file if it exists) */
+	@Override
+	public synchronized void abort(String key) {
+		File file = super.get(key);
+		String name = file.getName();
+		Entry entry = entries.get(name);
+		if (entry == null || entry.clean) return;
+
+		entries.remove(name);
+		file.delete();
+		writeJournalLine(REMOVE + ' ' + name, true);
+		redundantOpCount += 2; // DIRTY and REMOVE lines
+		compactJournalIfNeeded();
+	}
+
+	@Override
+	public synchronized void clear() {
+		closeJournalWriter();
+		entries.clear();
+		cacheSize = 0;
+		redundantOpCount = 0;
+		super.clear();
+		rebuildJournal();
+	}
+
+	/** Returns current size of cached files (in bytes) */
+	public synchronized long getCacheSize() {
+		return cacheSize;
+	}
+
+	/** Removes the least recently used files until cache size fits the limit. Must be called under lock. */
+	private void trimToSize() {
+		if (cacheSize <= maxCacheSize) return;
+
+		List<String> removedNames = new ArrayList<String>();
+		for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext() && cacheSize > maxCacheSize;) {
+			Map.Entry<String, Entry> mapEntry = it.next();
+			Entry entry = mapEntry.getValue();
+			if (!entry.clean) continue; // file is being written
+
+			File file = new File(getCacheDir(), mapEntry.getKey());
+			if (file.delete() || !file.exists()) {
+				cacheSize -= entry.length;
+				it.remove();
+				removedNames.add(mapEntry.getKey());
+			}
+		}
+		for (String name : removedNames) {
+			writeJournalLine(REMOVE + ' ' + name, false);
+		}
+		redundantOpCount += removedNames.size() * 2; // CLEAN and REMOVE lines of each entry
+		flushJournal();
+	}
+
+	private void compactJournalIfNeeded() {
+		if (redundantOpCount >= REDUNDANT_OP_COMPACT_THRESHOLD && redundantOpCount >= entries.size()) {
+			rebuildJournal();
+		}
+	}
+
+	/** Writes new journal which contains only current entries and replaces the old one. Must be called under lock. */
+	private void rebuildJournal() {
+		closeJournalWriter();
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFileTmp), JOURNAL_CHARSET));
+			try {
+				writer.write(MAGIC + '\n' + VERSION + '\n' + '\n');
+				for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+					Entry entry = mapEntry.getValue();
+					if (entry.clean) {
+						writer.write(CLEAN + ' ' + mapEntry.getKey() + ' ' + entry.length + '\n');
+					} else {
+						writer.write(DIRTY + ' ' + mapEntry.getKey() + '\n');
+					}
+				}
+			} finally {
+				writer.close();
+			}
+			if (!journalFileTmp.renameTo(journalFile)) {
+				throw new IOException("Can't rename " + journalFileTmp + " to " + journalFile);
+			}
+			redundantOpCount = 0;
+		} catch (IOException e) {
+			Log.w(ImageLoader.TAG, WARNING_JOURNAL_WRITING, e);
+		}
+		openJournalWriter();
+	}
+
+	private void openJournalWriter() {
+		try {
+			journalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), JOURNAL_CHARSET));
+		} catch (IOException e) {
+			Log.w(ImageLoader.TAG, WARNING_JOURNAL_WRITING, e);
+			journalWriter = null;
+		}
+	}
+
+	private void closeJournalWriter() {
+		if (journalWriter != null) {
+			try {
+				journalWriter.close();
+			} catch (IOException e) {
+				Log.w(ImageLoader.TAG, WARNING_JOURNAL_WRITING, e);
+			}
+			journalWriter = null;
+		}
+	}
+
+	private void writeJournalLine(String line, boolean flush) {
+		if (journalWriter == null) return;
+		try {
+			journalWriter.write(line);
+			journalWriter.write('\n');
+			if (flush) {
+				journalWriter.flush();
+			}
+		} catch (IOException e) {
+			Log.w(ImageLoader.TAG, WARNING_JOURNAL_WRITING, e);
+		}
+	}
+
+	private void flushJournal() {
+		if (journalWriter == null) return;
+		try {
+			journalWriter.flush();
+		} catch (IOException e) {
+			Log.w(ImageLoader.TAG, WARNING_JOURNAL_WRITING, e);
+		}
+	}
+
+	private static String readFully(File file) throws IOException {
+		InputStream is = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream os = new ByteArrayOutputStream((int) file.length());
+			FileUtils.copyStream(is, os);
+			return os.toString(JOURNAL_CHARSET);
+		} finally {
+			is.close();
+		}
+	}
+
+	private static final class Entry {
+		/** Whether file is cached completely */
+		boolean clean;
+		/** Size of cached file (in bytes). Makes sense only for clean entry. */
+		long length;
+	}
+}
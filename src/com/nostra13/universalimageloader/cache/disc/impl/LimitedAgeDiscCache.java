@@ -1,20 +1,33 @@
 package com.nostra13.universalimageloader.cache.disc.impl;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import android.util.Log;
+
 import com.nostra13.universalimageloader.cache.disc.BaseDiscCache;
+import com.nostra13.universalimageloader.cache.disc.RevalidatedDiscCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
+import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.download.ImageValidators;
 
 /**
- * Cache which deletes files which were loaded more than defined time. Cache size is unlimited.
+ * Cache which deletes files which were loaded more than defined time. Cache size is unlimited.<br />
+ * Validators of image ("ETag" and "Last-Modified" values) are stored in sidecar file next to cached file. Expired file
+ * which has validators isn't deleted: image loader revalidates it by conditional request and
+ * {@linkplain #refresh(String) refreshes} it if image wasn't modified on server.
  * 
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @see BaseDiscCache
  */
-public class LimitedAgeDiscCache extends BaseDiscCache {
+public class LimitedAgeDiscCache extends BaseDiscCache implements RevalidatedDiscCache {
+
+	/** Suffix of sidecar file which contains validators of cached file */
+	private static final String VALIDATORS_FILE_SUFFIX = ".validators";
+	private static final String WARNING_VALIDATORS = "Can't access validators of cached file %s";
 
 	private final long maxFileAge;
 
@@ -24,8 +37,8 @@ public class LimitedAgeDiscCache extends BaseDiscCache {
 	 * @param cacheDir
 	 *            Directory for file caching
 	 * @param maxAge
-	 *            Max file age (in seconds). If file age will exceed this value then it'll be removed on next treatment
-	 *            (and therefore be reloaded).
+	 *            Max file age (in seconds). If file age will exceed this value then it'll be revalidated or removed on
+	 *            next treatment (and therefore be reloaded).
 	 */
 	public LimitedAgeDiscCache(File cacheDir, long maxAge) {
 		this(cacheDir, FileNameGenerator.createDefault(), maxAge);
@@ -37,8 +50,8 @@ public class LimitedAgeDiscCache extends BaseDiscCache {
 	 * @param fileNameGenerator
 	 *            Name generator for cached files
 	 * @param maxAge
-	 *            Max file age (in seconds). If file age will exceed this value then it'll be removed on next treatment
-	 *            (and therefore be reloaded).
+	 *            Max file age (in seconds). If file age will exceed this value then it'll be revalidated or removed on
+	 *            next treatment (and therefore be reloaded).
 	 */
 	public LimitedAgeDiscCache(File cacheDir, FileNameGenerator fileNameGenerator, long maxAge) {
 		super(cacheDir, fileNameGenerator);
@@ -49,30 +62,98 @@ public class LimitedAgeDiscCache extends BaseDiscCache {
 	private void readLoadingDates() {
 		File[] cachedFiles = getCacheDir().listFiles();
 		for (File cachedFile : cachedFiles) {
+			if (!cachedFile.isFile() || cachedFile.getName().endsWith(VALIDATORS_FILE_SUFFIX)) continue;
 			loadingDates.put(cachedFile, cachedFile.lastModified());
 		}
 	}
 
+	/** Puts file without validators. Validators of previously cached version of file are deleted. */
 	@Override
 	public void put(String key, File file) {
-		long currentTime = System.currentTimeMillis();
-		file.setLastModified(currentTime);
-		loadingDates.put(file, currentTime);
+		getValidatorsFile(file).delete();
+		updateLoadingDate(file);
+	}
+
+	@Override
+	public void put(String key, File file, ImageValidators validators) {
+		File validatorsFile = getValidatorsFile(file);
+		if (validators == null || validators.isEmpty()) {
+			validatorsFile.delete();
+		} else {
+			writeValidators(validatorsFile, validators);
+		}
+		updateLoadingDate(file);
 	}
 
 	@Override
 	public File get(String key) {
 		File file = super.get(key);
-		if (file.exists()) {
-			Long loadingDate = loadingDates.get(file);
-			if (loadingDate == null) {
-				loadingDate = file.lastModified();
-			}
-			if (System.currentTimeMillis() - loadingDate > maxFileAge) {
+		if (file.exists() && isExpired(file)) {
+			File validatorsFile = getValidatorsFile(file);
+			if (!validatorsFile.exists()) {
+				// File can't be revalidated
 				file.delete();
 				loadingDates.remove(file);
 			}
 		}
 		return file;
 	}
-}
\ No newline at end of file
+
+	@Override
+	public boolean isExpired(String key) {
+		File file = super.get(key);
+		return file.exists() && isExpired(file);
+	}
+
+	@Override
+	public ImageValidators getValidators(String key) {
+		File validatorsFile = getValidatorsFile(super.get(key));
+		if (!validatorsFile.exists()) return null;
+
+		return readValidators(validatorsFile);
+	}
+
+	@Override
+	public void refresh(String key) {
+		File file = super.get(key);
+		if (file.exists()) {
+			updateLoadingDate(file);
+		}
+	}
+
+	private void updateLoadingDate(File file) {
+		long currentTime = System.currentTimeMillis();
+		file.setLastModified(currentTime);
+		loadingDates.put(file, currentTime);
+	}
+
+	private boolean isExpired(File file) {
+		Long loadingDate = loadingDates.get(file);
+		if (loadingDate == null) {
+			loadingDate = file.lastModified();
+		}
+		return System.currentTimeMillis() - loadingDate > maxFileAge;
+	}
+
+	private static File getValidatorsFile(File file) {
+		return new File(file.getPath() + VALIDATORS_FILE_SUFFIX);
+	}
+
+	private static void writeValidators(File validatorsFile, ImageValidators validators) {
+		try {
+			validators.writeTo(validatorsFile);
+		} catch (IOException e) {
+			Log.w(ImageLoader.TAG, String.format(WARNING_VALIDATORS, validatorsFile), e);
+			validatorsFile.delete();
+		}
+	}
+
+	private static ImageValidators readValidators(File validatorsFile) {
+		try {
+			return ImageValidators.readFrom(validatorsFile);
+		} catch (IOException e) {
+			Log.w(ImageLoader.TAG, String.format(WARNING_VALIDATORS, validatorsFile), e);
+			return null;
+		}
+	}
+}
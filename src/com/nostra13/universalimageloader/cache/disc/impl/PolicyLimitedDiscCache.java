@@ -0,0 +1,309 @@
+package com.nostra13.universalimageloader.cache.disc.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.nostra13.universalimageloader.cache.disc.BaseDiscCache;
+import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
+import com.nostra13.universalimageloader.cache.disc.policy.EvictionPolicy;
+import com.nostra13.universalimageloader.cache.disc.policy.FileCountPolicy;
+import com.nostra13.universalimageloader.cache.disc.policy.MaxAgePolicy;
+import com.nostra13.universalimageloader.cache.disc.policy.TotalSizePolicy;
+
+/**
+ * Disc cache limited by combination of {@linkplain EvictionPolicy eviction policies} (e.g. {@link TotalSizePolicy},
+ * {@link FileCountPolicy} and {@link MaxAgePolicy} together). Cached files are indexed in memory in order of last usage
+ * and in order of caching, so {@link #get(String)} and {@link #put(String, File)} are O(1) and don't touch file system
+ * besides setting of caching time.<br />
+ * Eviction isn't run inline: if cache exceeds limit of any policy then maintenance thread (with minimal priority)
+ * evicts files in the policy's order down to its low-water mark. Files expired by policy (e.g. too old) are evicted
+ * on lookup.<br />
+ * Cache directory is indexed on maintenance thread too, files are ordered by last modification date then. Maintenance
+ * thread is a daemon and it finishes after a minute of idleness, so cache doesn't need to be
+ * shut down.<br />
+ * <b>NOTE:</b> This cache doesn't {@linkplain com.nostra13.universalimageloader.cache.disc.RevalidatedDiscCache
+ * revalidate} files: files expired by {@link MaxAgePolicy} are deleted and images are downloaded again. Use
+ * {@link LimitedAgeDiscCache} if expired images should be revalidated by conditional requests.
+ * 
+ * @see EvictionPolicy
+ */
+public class PolicyLimitedDiscCache extends BaseDiscCache {
+
+	private static final String MAINTENANCE_THREAD_NAME = "uil-disc-cache-maintenance";
+	/** {@value} */
+	private static final long MAINTENANCE_THREAD_KEEP_ALIVE = 60; // seconds
+
+	private final EvictionPolicy[] policies;
+
+	/** Entries in order of last usage. Guarded by <b>this</b>. */
+	private final LinkedHashMap<String, Entry> usageOrder = new LinkedHashMap<String, Entry>(0, 0.75f, true);
+	/** Entries in order of caching. Guarded by <b>this</b>. */
+	private final LinkedHashMap<String, Entry> cachingOrder = new LinkedHashMap<String, Entry>(0, 0.75f, false);
+	/** Guarded by <b>this</b> */
+	private long cacheSize = 0;
+	/** Whether maintenance is scheduled and not started yet. Guarded by <b>this</b>. */
+	private boolean maintenanceScheduled = false;
+
+	private final ExecutorService maintenanceExecutor = new ThreadPoolExecutor(0, 1, MAINTENANCE_THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, MAINTENANCE_THREAD_NAME);
+			t.setPriority(Thread.MIN_PRIORITY);
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private final Runnable maintenance = new Runnable() {
+		@Override
+		public void run() {
+			synchronized (PolicyLimitedDiscCache.this) {
+				maintenanceScheduled = false;
+			}
+			evict();
+		}
+	};
+
+	/**
+	 * @param cacheDir
+	 *            Directory for file caching. <b>Important:</b> Specify separate folder for cached files. It's needed
+	 *            for right cache limit work.
+	 * @param policies
+	 *            Policies which limit cache
+	 */
+	public PolicyLimitedDiscCache(File cacheDir, EvictionPolicy... policies) {
+		this(cacheDir, FileNameGenerator.createDefault(), policies);
+	}
+
+	/**
+	 * @param cacheDir
+	 *            Directory for file caching. <b>Important:</b> Specify separate folder for cached files. It's needed
+	 *            for right cache limit work.
+	 * @param fileNameGenerator
+	 *            Name generator for cached files
+	 * @param policies
+	 *            Policies which limit cache
+	 */
+	public PolicyLimitedDiscCache(File cacheDir, FileNameGenerator fileNameGenerator, EvictionPolicy... policies) {
+		super(cacheDir, fileNameGenerator);
+		if (policies.length == 0) throw new IllegalArgumentException("At least one eviction policy must be defined");
+
+		this.policies = policies.clone();
+		maintenanceExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				indexCacheDir();
+				evict();
+			}
+		});
+	}
+
+	/**
+	 * Indexes cached file. File is checked under lock which guards deletion of evicted files, so file which was deleted
+	 * by eviction before it's put isn't indexed.
+	 */
+	@Override
+	public void put(String key, File file) {
+		String name = file.getName();
+		boolean evictionNeeded;
+		synchronized (this) {
+			if (!file.exists()) {
+				removeEntry(name);
+				return;
+			}
+			long currentTime = System.currentTimeMillis();
+			file.setLastModified(currentTime);
+			Entry entry = new Entry(file.length(), currentTime);
+
+			Entry oldEntry = usageOrder.put(name, entry);
+			if (oldEntry != null) {
+				cacheSize -= oldEntry.length;
+			}
+			cachingOrder.remove(name); // New entry goes to the end
+			cachingOrder.put(name, entry);
+			cacheSize += entry.length;
+			evictionNeeded = isAnyPolicyExceeded();
+		}
+		if (evictionNeeded) {
+			scheduleMaintenance();
+		}
+	}
+
+	/**
+	 * Returns file for key and moves it to the end of usage order if file is cached. If cached file is expired by any
+	 * policy then it's deleted.
+	 */
+	@Override
+	public File get(String key) {
+		File file = super.get(key);
+		String name = file.getName();
+		synchronized (this) {
+			Entry entry = usageOrder.get(name);
+			if (entry != null && isExpired(entry)) {
+				removeEntry(name);
+				file.delete();
+			}
+		}
+		return file;
+	}
+
+	@Override
+	public void clear() {
+		synchronized (this) {
+			usageOrder.clear();
+			cachingOrder.clear();
+			cacheSize = 0;
+		}
+		super.clear();
+	}
+
+	private void scheduleMaintenance() {
+		synchronized (this) {
+			if (maintenanceScheduled) return;
+			maintenanceScheduled = true;
+		}
+		maintenanceExecutor.execute(maintenance);
+	}
+
+	/**
+	 * Evicts files for every exceeded policy down to its low-water mark. Victims are removed from index in one batch,
+	 * then their files are deleted one by one. Every file is deleted under lock (after check that it wasn't cached
+	 * again meanwhile), so {@link #put(String, File)} can't index file which is being deleted.
+	 */
+	private void evict() {
+		List<String> victims = new ArrayList<String>();
+		synchronized (this) {
+			for (EvictionPolicy policy : policies) {
+				if (!policy.isExceeded(cacheSize, usageOrder.size(), getOldestCachingTime())) continue;
+
+				Map<String, Entry> order = policy.getEvictionOrder() == EvictionPolicy.Order.OLDEST_CACHED ? cachingOrder : usageOrder;
+				Iterator<Map.Entry<String, Entry>> it = order.entrySet().iterator();
+				while (it.hasNext() && policy.isAboveLowWaterMark(cacheSize, usageOrder.size(), getOldestCachingTime())) {
+					Map.Entry<String, Entry> victim = it.next();
+					String name = victim.getKey();
+					long length = victim.getValue().length;
+					it.remove();
+					// Remove entry from the other order
+					usageOrder.remove(name);
+					cachingOrder.remove(name);
+					cacheSize -= length;
+					victims.add(name);
+				}
+			}
+		}
+
+		File cacheDir = getCacheDir();
+		for (String name : victims) {
+			synchronized (this) {
+				// File could be cached again after it was chosen for eviction
+				if (!usageOrder.containsKey(name)) {
+					new File(cacheDir, name).delete();
+				}
+			}
+		}
+	}
+
+	/** Indexes files of cache directory in order of last modification date. Files cached meanwhile remain newer. */
+	private void indexCacheDir() {
+		File[] cachedFiles = getCacheDir().listFiles();
+		if (cachedFiles == null) return;
+
+		final long[] lastModifiedDates = new long[cachedFiles.length];
+		Integer[] indices = new Integer[cachedFiles.length];
+		for (int i = 0; i < cachedFiles.length; i++) {
+			lastModifiedDates[i] = cachedFiles[i].lastModified();
+			indices[i] = i;
+		}
+		Arrays.sort(indices, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				long d1 = lastModifiedDates[i1];
+				long d2 = lastModifiedDates[i2];
+				return d1 < d2 ? -1 : (d1 == d2 ? 0 : 1);
+			}
+		});
+
+		synchronized (this) {
+			Map<String, Entry> cachedMeanwhile = new LinkedHashMap<String, Entry>(cachingOrder);
+			Map<String, Entry> usedMeanwhile = new LinkedHashMap<String, Entry>(usageOrder);
+			usageOrder.clear();
+			cachingOrder.clear();
+			cacheSize = 0;
+			for (Integer i : indices) {
+				File file = cachedFiles[i];
+				if (!file.isFile() || usedMeanwhile.containsKey(file.getName())) continue;
+
+				Entry entry = new Entry(file.length(), lastModifiedDates[i]);
+				usageOrder.put(file.getName(), entry);
+				cachingOrder.put(file.getName(), entry);
+				cacheSize += entry.length;
+			}
+			for (Map.Entry<String, Entry> mapEntry : cachedMeanwhile.entrySet()) {
+				cachingOrder.put(mapEntry.getKey(), mapEntry.getValue());
+			}
+			for (Map.Entry<String, Entry> mapEntry : usedMeanwhile.entrySet()) {
+				usageOrder.put(mapEntry.getKey(), mapEntry.getValue());
+				cacheSize += mapEntry.getValue().length;
+			}
+		}
+	}
+
+	/** Must be called under lock */
+	private void removeEntry(String name) {
+		Entry entry = usageOrder.remove(name);
+		cachingOrder.remove(name);
+		if (entry != null) {
+			cacheSize -= entry.length;
+		}
+	}
+
+	/** Must be called under lock */
+	private long getOldestCachingTime() {
+		Iterator<Entry> it = cachingOrder.values().iterator();
+		return it.hasNext() ? it.next().cachingTime : 0;
+	}
+
+	/** Must be called under lock */
+	private boolean isAnyPolicyExceeded() {
+		long oldestCachingTime = getOldestCachingTime();
+		for (EvictionPolicy policy : policies) {
+			if (policy.isExceeded(cacheSize, usageOrder.size(), oldestCachingTime)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isExpired(Entry entry) {
+		for (EvictionPolicy policy : policies) {
+			if (policy.isExpired(entry.cachingTime)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static final class Entry {
+		/** Size of cached file (in bytes) */
+		final long length;
+		/** Time when file was cached (in milliseconds since epoch) */
+		final long cachingTime;
+
+		Entry(long length, long cachingTime) {
+			this.length = length;
+			this.cachingTime = cachingTime;
+		}
+	}
+}
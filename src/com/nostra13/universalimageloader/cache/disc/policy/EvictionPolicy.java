@@ -0,0 +1,45 @@
+package com.nostra13.universalimageloader.cache.disc.policy;
+
+/**
+ * Policy of disc cache limit. Several policies can be combined in
+ * {@link com.nostra13.universalimageloader.cache.disc.impl.PolicyLimitedDiscCache PolicyLimitedDiscCache} (e.g.
+ * "50 Mb, 5000 files and 7 days"). Eviction is started when cache exceeds limit of any policy and it continues down to
+ * low-water mark of this policy, so files are evicted in batches rather than one file per cached file.
+ */
+public interface EvictionPolicy {
+
+	/** Order which files are evicted by policy in */
+	enum Order {
+		/** File which was used the least recently is evicted first */
+		LEAST_RECENTLY_USED,
+		/** File which was cached the earliest is evicted first */
+		OLDEST_CACHED
+	}
+
+	/** Returns order which files should be evicted in */
+	Order getEvictionOrder();
+
+	/**
+	 * Returns <b>true</b> - if cache exceeds limit of policy (eviction should be started)
+	 * 
+	 * @param cacheSize
+	 *            Total size of cached files (in bytes)
+	 * @param fileCount
+	 *            Count of cached files
+	 * @param oldestCachingTime
+	 *            Time when the oldest cached file was cached (in milliseconds since epoch), <b>0</b> - if cache is empty
+	 */
+	boolean isExceeded(long cacheSize, int fileCount, long oldestCachingTime);
+
+	/**
+	 * Returns <b>true</b> - if cache is above low-water mark of policy (eviction should be continued). Arguments are the
+	 * same as for {@link #isExceeded(long, int, long)}.
+	 */
+	boolean isAboveLowWaterMark(long cacheSize, int fileCount, long oldestCachingTime);
+
+	/**
+	 * Returns <b>true</b> - if file which was cached at defined time (in milliseconds since epoch) mustn't be used
+	 * anymore regardless of cache state
+	 */
+	boolean isExpired(long cachingTime);
+}
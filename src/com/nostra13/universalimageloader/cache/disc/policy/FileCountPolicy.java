@@ -0,0 +1,55 @@
+package com.nostra13.universalimageloader.cache.disc.policy;
+
+/**
+ * Limits count of cached files. The least recently used files are evicted until file count drops below low-water mark.
+ */
+public class FileCountPolicy implements EvictionPolicy {
+
+	/** {@value} */
+	public static final float DEFAULT_LOW_WATER_RATIO = 0.9f;
+
+	private final int maxFileCount;
+	private final int lowWaterFileCount;
+
+	/**
+	 * @param maxFileCount
+	 *            Maximum count of cached files. Cache is trimmed to {@value #DEFAULT_LOW_WATER_RATIO} of this count.
+	 */
+	public FileCountPolicy(int maxFileCount) {
+		this(maxFileCount, DEFAULT_LOW_WATER_RATIO);
+	}
+
+	/**
+	 * @param maxFileCount
+	 *            Maximum count of cached files
+	 * @param lowWaterRatio
+	 *            Part of maximum count which cache is trimmed to when it exceeds maximum count (from 0 to 1)
+	 */
+	public FileCountPolicy(int maxFileCount, float lowWaterRatio) {
+		if (maxFileCount <= 0) throw new IllegalArgumentException("maxFileCount must be a positive number");
+		if (lowWaterRatio <= 0 || lowWaterRatio > 1) throw new IllegalArgumentException("lowWaterRatio must be in (0, 1] range");
+
+		this.maxFileCount = maxFileCount;
+		this.lowWaterFileCount = (int) (maxFileCount * lowWaterRatio);
+	}
+
+	@Override
+	public Order getEvictionOrder() {
+		return Order.LEAST_RECENTLY_USED;
+	}
+
+	@Override
+	public boolean isExceeded(long cacheSize, int fileCount, long oldestCachingTime) {
+		return fileCount > maxFileCount;
+	}
+
+	@Override
+	public boolean isAboveLowWaterMark(long cacheSize, int fileCount, long oldestCachingTime) {
+		return fileCount > lowWaterFileCount;
+	}
+
+	@Override
+	public boolean isExpired(long cachingTime) {
+		return false;
+	}
+}
@@ -0,0 +1,42 @@
+package com.nostra13.universalimageloader.cache.disc.policy;
+
+/**
+ * Limits age of cached files. Files which were cached earlier than max age ago are evicted (the oldest first).<br />
+ * <b>NOTE:</b> Expired files are deleted, they aren't revalidated by conditional requests. Don't use this policy if
+ * images should be revalidated, use
+ * {@link com.nostra13.universalimageloader.cache.disc.impl.LimitedAgeDiscCache LimitedAgeDiscCache} instead.
+ */
+public class MaxAgePolicy implements EvictionPolicy {
+
+	private final long maxFileAge;
+
+	/**
+	 * @param maxAge
+	 *            Max file age (in seconds)
+	 */
+	public MaxAgePolicy(long maxAge) {
+		if (maxAge <= 0) throw new IllegalArgumentException("maxAge must be a positive number");
+
+		this.maxFileAge = maxAge * 1000; // to milliseconds
+	}
+
+	@Override
+	public Order getEvictionOrder() {
+		return Order.OLDEST_CACHED;
+	}
+
+	@Override
+	public boolean isExceeded(long cacheSize, int fileCount, long oldestCachingTime) {
+		return fileCount > 0 && isExpired(oldestCachingTime);
+	}
+
+	@Override
+	public boolean isAboveLowWaterMark(long cacheSize, int fileCount, long oldestCachingTime) {
+		return isExceeded(cacheSize, fileCount, oldestCachingTime);
+	}
+
+	@Override
+	public boolean isExpired(long cachingTime) {
+		return System.currentTimeMillis() - cachingTime > maxFileAge;
+	}
+}
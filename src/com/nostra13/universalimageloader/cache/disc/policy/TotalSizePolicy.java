@@ -0,0 +1,57 @@
+package com.nostra13.universalimageloader.cache.disc.policy;
+
+/**
+ * Limits total size of cached files. The least recently used files are evicted until cache size drops below low-water
+ * mark.
+ */
+public class TotalSizePolicy implements EvictionPolicy {
+
+	/** {@value} */
+	public static final float DEFAULT_LOW_WATER_RATIO = 0.9f;
+
+	private final long maxCacheSize;
+	private final long lowWaterCacheSize;
+
+	/**
+	 * @param maxCacheSize
+	 *            Maximum total size of cached files (in bytes). Cache is trimmed to {@value #DEFAULT_LOW_WATER_RATIO}
+	 *            of this size.
+	 */
+	public TotalSizePolicy(long maxCacheSize) {
+		this(maxCacheSize, DEFAULT_LOW_WATER_RATIO);
+	}
+
+	/**
+	 * @param maxCacheSize
+	 *            Maximum total size of cached files (in bytes)
+	 * @param lowWaterRatio
+	 *            Part of maximum size which cache is trimmed to when it exceeds maximum size (from 0 to 1)
+	 */
+	public TotalSizePolicy(long maxCacheSize, float lowWaterRatio) {
+		if (maxCacheSize <= 0) throw new IllegalArgumentException("maxCacheSize must be a positive number");
+		if (lowWaterRatio <= 0 || lowWaterRatio > 1) throw new IllegalArgumentException("lowWaterRatio must be in (0, 1] range");
+
+		this.maxCacheSize = maxCacheSize;
+		this.lowWaterCacheSize = (long) (maxCacheSize * lowWaterRatio);
+	}
+
+	@Override
+	public Order getEvictionOrder() {
+		return Order.LEAST_RECENTLY_USED;
+	}
+
+	@Override
+	public boolean isExceeded(long cacheSize, int fileCount, long oldestCachingTime) {
+		return cacheSize > maxCacheSize;
+	}
+
+	@Override
+	public boolean isAboveLowWaterMark(long cacheSize, int fileCount, long oldestCachingTime) {
+		return cacheSize > lowWaterCacheSize;
+	}
+
+	@Override
+	public boolean isExpired(long cachingTime) {
+		return false;
+	}
+}
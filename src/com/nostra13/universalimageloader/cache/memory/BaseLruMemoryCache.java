@@ -0,0 +1,121 @@
+package com.nostra13.universalimageloader.cache.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Base limited memory cache which keeps strong references to values. Size of all stored values will not to exceed
+ * size limit. When cache reaches limit size then the least recently used values are deleted from cache.<br />
+ * Every value is kept in single access-ordered map, so {@link #get(String) get}, {@link #put(String, Object) put} and
+ * eviction of each value are O(1). Size of value is defined by {@link #sizeOf(Object)}.
+ * 
+ * @param <V>
+ *            Type of cached values
+ */
+public abstract class BaseLruMemoryCache<V> implements MemoryCacheAware<String, V>, TrimmableMemoryCache {
+
+	private static final int INITIAL_CAPACITY = 0;
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private final int maxSize;
+
+	/** Cached values in LRU order (the least recently used is the first). Guarded by <b>this</b>. */
+	private final LinkedHashMap<String, V> map = new LinkedHashMap<String, V>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+	/** Size of all cached values (in bytes). Guarded by <b>this</b>. */
+	private int size = 0;
+
+	/**
+	 * @param maxSize
+	 *            Maximum size for cache (in bytes)
+	 */
+	public BaseLruMemoryCache(int maxSize) {
+		if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be a positive number");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Puts value into cache. If cache exceeds size limit then the least recently used values are deleted.
+	 * 
+	 * @return <b>true</b> - if value was put into cache; <b>false</b> - if value is larger than
+	 *         {@linkplain #getMaxEntrySize() maximum entry size}
+	 */
+	@Override
+	public synchronized boolean put(String key, V value) {
+		if (key == null || value == null) throw new NullPointerException("key == null || value == null");
+
+		int valueSize = sizeOf(value);
+		if (valueSize > getMaxEntrySize()) {
+			remove(key);
+			return false;
+		}
+
+		V previous = map.put(key, value);
+		size += valueSize;
+		if (previous != null) {
+			size -= sizeOf(previous);
+		}
+		trimToSize(maxSize);
+		return true;
+	}
+
+	@Override
+	public synchronized V get(String key) {
+		if (key == null) throw new NullPointerException("key == null");
+		return map.get(key);
+	}
+
+	@Override
+	public synchronized void remove(String key) {
+		if (key == null) throw new NullPointerException("key == null");
+
+		V previous = map.remove(key);
+		if (previous != null) {
+			size -= sizeOf(previous);
+		}
+	}
+
+	@Override
+	public synchronized Collection<String> keys() {
+		return new ArrayList<String>(map.keySet());
+	}
+
+	@Override
+	public synchronized void clear() {
+		map.clear();
+		size = 0;
+	}
+
+	/** Returns size of all cached values (in bytes) */
+	@Override
+	public synchronized int getSize() {
+		return size;
+	}
+
+	/** Returns maximum size for cache (in bytes) */
+	@Override
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/** Returns maximum size of value which can be cached (in bytes). By default it's size of whole cache. */
+	public int getMaxEntrySize() {
+		return maxSize;
+	}
+
+	/** Removes the least recently used values until cache size fits to <b>maxSize</b> */
+	@Override
+	public synchronized void trimToSize(int maxSize) {
+		Iterator<Map.Entry<String, V>> it = map.entrySet().iterator();
+		while (size > maxSize && it.hasNext()) {
+			Map.Entry<String, V> eldest = it.next();
+			size -= sizeOf(eldest.getValue());
+			it.remove();
+		}
+	}
+
+	/** Returns size of value (in bytes). Size of value mustn't change while value is cached. */
+	protected abstract int sizeOf(V value);
+}
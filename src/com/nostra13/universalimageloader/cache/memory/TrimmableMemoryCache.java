@@ -0,0 +1,18 @@
+package com.nostra13.universalimageloader.cache.memory;
+
+/**
+ * Memory cache which knows size of its values and can evict the least recently used values on demand
+ * 
+ * @see MemoryCacheAware
+ */
+public interface TrimmableMemoryCache {
+
+	/** Returns size of all cached values (in bytes) */
+	int getSize();
+
+	/** Returns maximum size of all cached values (in bytes) */
+	int getMaxSize();
+
+	/** Removes the least recently used values until size of cache fits to <b>maxSize</b> (in bytes) */
+	void trimToSize(int maxSize);
+}
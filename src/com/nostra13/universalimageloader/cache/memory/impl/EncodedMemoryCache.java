@@ -0,0 +1,42 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import com.nostra13.universalimageloader.cache.memory.BaseLruMemoryCache;
+
+/**
+ * Limited cache of encoded images (JPEG, PNG bytes as they are stored on disc) by image URI. It's the middle tier
+ * between {@link android.graphics.Bitmap bitmap} memory cache and disc cache: decoding of small encoded image from
+ * memory is much faster than reading it from external storage, and encoded image takes several times less memory than
+ * decoded bitmap, so the same memory keeps much more images.<br />
+ * When cache reaches limit size then the least recently used images are deleted. Images larger than
+ * 1/{@value #MAX_ENTRY_SIZE_DIVIDER} of cache size aren't cached (they would evict too many small images).
+ * 
+ * @see LruMemoryCache
+ */
+public class EncodedMemoryCache extends BaseLruMemoryCache<byte[]> {
+
+	/** {@value} */
+	public static final int MAX_ENTRY_SIZE_DIVIDER = 8;
+
+	private final int maxEntrySize;
+
+	/**
+	 * @param maxSize
+	 *            Maximum size for cache (in bytes)
+	 */
+	public EncodedMemoryCache(int maxSize) {
+		super(maxSize);
+		this.maxEntrySize = maxSize / MAX_ENTRY_SIZE_DIVIDER;
+	}
+
+	/** Returns maximum size of image which can be cached (in bytes) */
+	@Override
+	public int getMaxEntrySize() {
+		return maxEntrySize;
+	}
+
+	/** Returns size of encoded image (in bytes) */
+	@Override
+	protected int sizeOf(byte[] value) {
+		return value.length;
+	}
+}
@@ -2,60 +2,112 @@ package com.nostra13.universalimageloader.cache.memory.impl;
 
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.TreeMap;
 
 import com.nostra13.universalimageloader.cache.memory.MemoryCacheAware;
+import com.nostra13.universalimageloader.cache.memory.TrimmableMemoryCache;
 
 /**
  * Decorator for {@link MemoryCacheAware}. Provides special feature for cache: some different keys are considered as
  * equals (using {@link Comparator comparator}). And when you try to put some value into cache by key so entries with
  * "equals" keys will be removed from cache before.<br />
+ * Keys are indexed by comparator so search of "equal" key doesn't iterate over all cache keys. Decorated cache must be
+ * thread-safe: {@link #get(Object) get} is delegated without additional locking. Decorator is
+ * {@linkplain TrimmableMemoryCache trimmable} if decorated cache is trimmable.<br />
  * <b>NOTE:</b> Used for internal needs. Normally you don't need to use this class.
  * 
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  */
-public class FuzzyKeyMemoryCache<K, V> implements MemoryCacheAware<K, V> {
+public class FuzzyKeyMemoryCache<K, V> implements MemoryCacheAware<K, V>, TrimmableMemoryCache {
+
+	/** Minimal index size when index is checked for keys which were evicted by decorated cache */
+	private static final int MIN_INDEX_CLEANUP_SIZE = 64;
 
 	private final MemoryCacheAware<K, V> cache;
-	private final Comparator<K> keyComparator;
+
+	/**
+	 * The last put key for every group of "equal" keys. Can contain keys which were already evicted by decorated
+	 * cache. Guarded by <b>this</b>.
+	 */
+	private final TreeMap<K, K> keyIndex;
+	/** Index size which triggers index cleanup. Guarded by <b>this</b>. */
+	private int indexCleanupSize = MIN_INDEX_CLEANUP_SIZE;
 
 	public FuzzyKeyMemoryCache(MemoryCacheAware<K, V> cache, Comparator<K> keyComparator) {
 		this.cache = cache;
-		this.keyComparator = keyComparator;
+		keyIndex = new TreeMap<K, K>(keyComparator);
 	}
 
 	@Override
 	public synchronized boolean put(K key, V value) {
 		// Search equal key and remove this entry
-		K keyToRemove = null;
-		for (Iterator<K> it = cache.keys().iterator(); it.hasNext();) {
-			K cacheKey = it.next();
-			if (keyComparator.compare(key, cacheKey) == 0) {
-				keyToRemove = cacheKey;
-			}
+		K keyToRemove = keyIndex.put(key, key);
+		if (keyToRemove != null && !keyToRemove.equals(key)) {
+			cache.remove(keyToRemove);
+		}
+		if (keyIndex.size() > indexCleanupSize) {
+			cleanUpIndex();
 		}
-		cache.remove(keyToRemove);
-
 		return cache.put(key, value);
 	}
 
 	@Override
-	public synchronized V get(K key) {
+	public V get(K key) {
 		return cache.get(key);
 	}
 
 	@Override
 	public synchronized void remove(K key) {
+		K indexedKey = keyIndex.get(key);
+		if (key.equals(indexedKey)) {
+			keyIndex.remove(key);
+		}
 		cache.remove(key);
 	}
 
 	@Override
 	public synchronized void clear() {
+		keyIndex.clear();
+		indexCleanupSize = MIN_INDEX_CLEANUP_SIZE;
 		cache.clear();
 	}
 
 	@Override
-	public synchronized Collection<K> keys() {
+	public Collection<K> keys() {
 		return cache.keys();
 	}
+
+	@Override
+	public int getSize() {
+		return cache instanceof TrimmableMemoryCache ? ((TrimmableMemoryCache) cache).getSize() : 0;
+	}
+
+	@Override
+	public int getMaxSize() {
+		return cache instanceof TrimmableMemoryCache ? ((TrimmableMemoryCache) cache).getMaxSize() : 0;
+	}
+
+	@Override
+	public void trimToSize(int maxSize) {
+		if (cache instanceof TrimmableMemoryCache) {
+			((TrimmableMemoryCache) cache).trimToSize(maxSize);
+		}
+	}
+
+	/**
+	 * Removes keys evicted by decorated cache from index. Next cleanup is scheduled when index doubles, so cleanup costs
+	 * O(1) per put in average. Must be called under lock.
+	 */
+	private void cleanUpIndex() {
+		TreeMap<K, K> actualKeys = new TreeMap<K, K>(keyIndex.comparator());
+		for (K cacheKey : cache.keys()) {
+			K indexedKey = keyIndex.get(cacheKey);
+			if (cacheKey.equals(indexedKey)) {
+				actualKeys.put(cacheKey, cacheKey);
+			}
+		}
+		keyIndex.clear();
+		keyIndex.putAll(actualKeys);
+		indexCleanupSize = Math.max(MIN_INDEX_CLEANUP_SIZE, keyIndex.size() * 2);
+	}
 }
@@ -0,0 +1,29 @@
+package com.nostra13.universalimageloader.cache.memory.impl;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.BaseLruMemoryCache;
+
+/**
+ * Limited {@link Bitmap bitmap} cache which keeps strong references to bitmaps. Size of all stored bitmaps will not to
+ * exceed size limit. When cache reaches limit size then the least recently used bitmap is deleted from cache.<br />
+ * Unlike {@link LRULimitedMemoryCache} it keeps every bitmap in single access-ordered map, so
+ * {@link #get(String) get}, {@link #put(String, Bitmap) put} and eviction of each bitmap are O(1). Size of bitmap is
+ * counted in bytes.
+ */
+public class LruMemoryCache extends BaseLruMemoryCache<Bitmap> {
+
+	/**
+	 * @param maxSize
+	 *            Maximum size for cache (in bytes)
+	 */
+	public LruMemoryCache(int maxSize) {
+		super(maxSize);
+	}
+
+	/** Returns size of bitmap (in bytes) */
+	@Override
+	protected int sizeOf(Bitmap value) {
+		return value.getRowBytes() * value.getHeight();
+	}
+}
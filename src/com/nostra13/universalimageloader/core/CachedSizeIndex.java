@@ -0,0 +1,101 @@
+package com.nostra13.universalimageloader.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheAware;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.MemoryCacheKeyUtil;
+
+/**
+ * Index of target sizes which images were cached in memory with (by image key, see
+ * {@link MemoryCacheKeyUtil#generateImageKey(String, com.nostra13.universalimageloader.core.assist.ImageQuality, Bitmap.Config, com.nostra13.universalimageloader.core.process.BitmapProcessor)
+ * MemoryCacheKeyUtil.generateImageKey()}). Allows to find larger variant of image in memory cache without iterating
+ * over all cache keys. Image key contains decoding quality and config, so only variants decoded with the same config
+ * are found. Index is a hint only:
+ * memory cache evicts bitmaps without notice, so found entries are checked against memory cache and evicted entries are
+ * removed on lookup. Index keeps sizes of the most recently used {@value #MAX_URI_COUNT} URIs.
+ */
+final class CachedSizeIndex {
+
+	/** {@value} */
+	private static final int MAX_URI_COUNT = 512;
+
+	/** Guarded by <b>this</b> */
+	private final Map<String, List<ImageSize>> cachedSizes = new LinkedHashMap<String, List<ImageSize>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, List<ImageSize>> eldest) {
+			return size() > MAX_URI_COUNT;
+		}
+	};
+
+	/** Registers that image was cached in memory with target size */
+	synchronized void add(String imageKey, ImageSize targetSize) {
+		List<ImageSize> sizes = cachedSizes.get(imageKey);
+		if (sizes == null) {
+			sizes = new ArrayList<ImageSize>(2);
+			cachedSizes.put(imageKey, sizes);
+		}
+		for (ImageSize size : sizes) {
+			if (isSameSize(size, targetSize)) return;
+		}
+		sizes.add(targetSize);
+	}
+
+	/**
+	 * Returns the smallest cached variant of image which was cached with target size not less than incoming target size
+	 * (in both dimensions) or <b>null</b> if there is no such variant in memory cache
+	 */
+	Bitmap findLargerVariant(String imageKey, ImageSize targetSize, MemoryCacheAware<String, Bitmap> memoryCache) {
+		while (true) {
+			ImageSize variantSize = findLargerSize(imageKey, targetSize);
+			if (variantSize == null) return null;
+
+			Bitmap bitmap = memoryCache.get(MemoryCacheKeyUtil.generateKey(imageKey, variantSize));
+			if (bitmap != null && !bitmap.isRecycled()) {
+				return bitmap;
+			}
+			remove(imageKey, variantSize);
+		}
+	}
+
+	private synchronized ImageSize findLargerSize(String imageKey, ImageSize targetSize) {
+		List<ImageSize> sizes = cachedSizes.get(imageKey);
+		if (sizes == null) return null;
+
+		ImageSize result = null;
+		for (ImageSize size : sizes) {
+			if (size.getWidth() >= targetSize.getWidth() && size.getHeight() >= targetSize.getHeight() && !isSameSize(size, targetSize)) {
+				if (result == null || size.getWidth() * size.getHeight() < result.getWidth() * result.getHeight()) {
+					result = size;
+				}
+			}
+		}
+		return result;
+	}
+
+	private synchronized void remove(String imageKey, ImageSize targetSize) {
+		List<ImageSize> sizes = cachedSizes.get(imageKey);
+		if (sizes == null) return;
+
+		for (Iterator<ImageSize> it = sizes.iterator(); it.hasNext();) {
+			if (isSameSize(it.next(), targetSize)) {
+				it.remove();
+			}
+		}
+		if (sizes.isEmpty()) {
+			cachedSizes.remove(imageKey);
+		}
+	}
+
+	private static boolean isSameSize(ImageSize size1, ImageSize size2) {
+		return size1.getWidth() == size2.getWidth() && size1.getHeight() == size2.getHeight();
+	}
+}
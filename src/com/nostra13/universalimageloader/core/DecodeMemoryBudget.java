@@ -0,0 +1,127 @@
+package com.nostra13.universalimageloader.core;
+
+import java.io.InterruptedIOException;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheAware;
+import com.nostra13.universalimageloader.cache.memory.TrimmableMemoryCache;
+
+/**
+ * Admission control for image decoding. Memory budget is shared by memory cache and bitmaps which are being decoded at
+ * this moment. Size of bitmap is estimated from image bounds before decoding and is reserved from budget. If budget is
+ * exceeded then:
+ * <ul>
+ * <li>just enough of the least recently used bitmaps are evicted from memory cache (if memory cache is
+ * {@link TrimmableMemoryCache trimmable})</li>
+ * <li>decoding waits until other decodings release their reservations</li>
+ * <li>image which doesn't fit into budget at all is decoded with larger sample size</li>
+ * </ul>
+ * 
+ * @see ImageDecoder
+ */
+final class DecodeMemoryBudget {
+
+	/** Maximum time (in milliseconds) which decoding waits for budget. Then it's admitted anyway to avoid starvation. */
+	private static final long MAX_WAIT_TIME = 5 * 1000;
+
+	private final int budget;
+	private final MemoryCacheAware<String, Bitmap> memoryCache;
+	/** Size of bitmaps which are being decoded. Guarded by <b>this</b>. */
+	private int reservedSize = 0;
+
+	/**
+	 * @param budget
+	 *            Maximum size (in bytes) of cached and being decoded bitmaps
+	 * @param memoryCache
+	 *            Memory cache which shares the budget
+	 */
+	DecodeMemoryBudget(int budget, MemoryCacheAware<String, Bitmap> memoryCache) {
+		this.budget = budget;
+		this.memoryCache = memoryCache;
+	}
+
+	/**
+	 * Estimates size (in bytes) of bitmap decoded from image of incoming size with incoming sample size and bitmap
+	 * config
+	 */
+	static int estimateBitmapSize(int imageWidth, int imageHeight, int sampleSize, Bitmap.Config config) {
+		long size = (long) (imageWidth / sampleSize) * (imageHeight / sampleSize) * getBytesPerPixel(config);
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	private static int getBytesPerPixel(Bitmap.Config config) {
+		if (config == null) return 4;
+		switch (config) {
+			case ALPHA_8:
+				return 1;
+			case RGB_565:
+			case ARGB_4444:
+				return 2;
+			default:
+				return 4;
+		}
+	}
+
+	/** Increases (doubles) sample size until decoded bitmap fits into the whole budget */
+	int fitSampleSize(int imageWidth, int imageHeight, int sampleSize, Bitmap.Config config) {
+		while (estimateBitmapSize(imageWidth, imageHeight, sampleSize, config) > budget && (imageWidth / sampleSize > 1 || imageHeight / sampleSize > 1)) {
+			sampleSize *= 2;
+		}
+		return sampleSize;
+	}
+
+	/**
+	 * Reserves <b>size</b> bytes of budget. Evicts bitmaps from memory cache and waits for other decodings if it's
+	 * needed. Reservation must be {@linkplain #release(int) released} after decoding.<br />
+	 * Memory cache is accessed outside of budget lock, so slow trimming doesn't block releasing of reservations and
+	 * cache can't deadlock with the budget.
+	 * 
+	 * @throws InterruptedIOException
+	 *             if thread was interrupted while waiting for budget
+	 */
+	void reserve(int size) throws InterruptedIOException {
+		long deadline = SystemClock.uptimeMillis() + MAX_WAIT_TIME;
+		while (true) {
+			int maxCacheSize;
+			synchronized (this) {
+				maxCacheSize = budget - reservedSize - size;
+			}
+			if (getCacheSize() > maxCacheSize) {
+				trimCache(maxCacheSize);
+			}
+			int cacheSize = getCacheSize();
+
+			synchronized (this) {
+				int shortage = reservedSize + cacheSize + size - budget;
+				long waitTime = deadline - SystemClock.uptimeMillis();
+				if (shortage <= 0 || reservedSize == 0 || waitTime <= 0) {
+					reservedSize += size;
+					return;
+				}
+				try {
+					wait(waitTime);
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+		}
+	}
+
+	/** Releases reservation made by {@link #reserve(int)} */
+	synchronized void release(int size) {
+		reservedSize -= size;
+		notifyAll();
+	}
+
+	private int getCacheSize() {
+		return memoryCache instanceof TrimmableMemoryCache ? ((TrimmableMemoryCache) memoryCache).getSize() : 0;
+	}
+
+	private void trimCache(int maxSize) {
+		if (memoryCache instanceof TrimmableMemoryCache) {
+			((TrimmableMemoryCache) memoryCache).trimToSize(Math.max(maxSize, 0));
+		}
+	}
+}
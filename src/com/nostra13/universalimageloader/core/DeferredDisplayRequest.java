@@ -0,0 +1,71 @@
+package com.nostra13.universalimageloader.core;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+
+import android.view.ViewTreeObserver;
+import android.view.ViewTreeObserver.OnPreDrawListener;
+import android.widget.ImageView;
+
+import com.nostra13.universalimageloader.core.assist.ImageLoadingListener;
+
+/**
+ * Display image request which waits for layout of its {@link ImageView}. Size of view which is sized by its parent is
+ * unknown until the first layout pass, so request is resumed just before the view is drawn. If view was detached from
+ * window meanwhile then request keeps waiting on view's own {@link ViewTreeObserver} (it isn't referenced by window)
+ * until view is attached again. Must be used on UI thread.
+ * 
+ * @see ImageLoader#displayImage(String, ImageView, DisplayImageOptions, ImageLoadingListener)
+ */
+final class DeferredDisplayRequest implements OnPreDrawListener {
+
+	final String uri;
+	final DisplayImageOptions options;
+	final ImageLoadingListener listener;
+	private final Reference<ImageView> imageViewRef;
+	/** Observer which request is registered in */
+	private ViewTreeObserver observer;
+
+	public DeferredDisplayRequest(String uri, ImageView imageView, DisplayImageOptions options, ImageLoadingListener listener) {
+		this.uri = uri;
+		this.options = options;
+		this.listener = listener;
+		imageViewRef = new WeakReference<ImageView>(imageView);
+		register(imageView);
+	}
+
+	private void register(ImageView imageView) {
+		observer = imageView.getViewTreeObserver();
+		observer.addOnPreDrawListener(this);
+	}
+
+	/** Stops waiting for layout */
+	void cancel() {
+		if (observer.isAlive()) {
+			observer.removeOnPreDrawListener(this);
+		}
+		// Observer of detached view is merged into window's observer when view is attached, so listener can be there
+		ImageView imageView = imageViewRef.get();
+		if (imageView != null) {
+			ViewTreeObserver currentObserver = imageView.getViewTreeObserver();
+			if (currentObserver != observer && currentObserver.isAlive()) {
+				currentObserver.removeOnPreDrawListener(this);
+			}
+		}
+	}
+
+	@Override
+	public boolean onPreDraw() {
+		cancel();
+		ImageView imageView = imageViewRef.get();
+		if (imageView == null) return true;
+
+		if (imageView.getWindowToken() == null) {
+			// View was detached, so it won't be drawn in this window
+			register(imageView);
+		} else {
+			ImageLoader.getInstance().resumeDeferredDisplay(imageView, this);
+		}
+		return true;
+	}
+}
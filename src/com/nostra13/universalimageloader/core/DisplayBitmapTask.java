@@ -6,7 +6,9 @@ import android.graphics.Bitmap;
 import android.widget.ImageView;
 
 /**
- * Displays bitmap in {@link ImageView}. Must be called on UI thread.
+ * Displays bitmap in {@link ImageView}. Must be called on UI thread. Bitmap isn't displayed (and
+ * {@link ImageLoadingListener#onLoadingCancelled()} is fired) if ImageView was reused for another image while the task
+ * waited in {@link DisplayQueue}.
  * 
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @see ImageLoadingListener
@@ -15,16 +17,21 @@ final class DisplayBitmapTask implements Runnable {
 
 	private final Bitmap bitmap;
 	private final ImageView imageView;
+	private final String memoryCacheKey;
 	private final ImageLoadingListener listener;
 
-	public DisplayBitmapTask(Bitmap bitmap, ImageView imageView,
-			ImageLoadingListener listener) {
+	public DisplayBitmapTask(Bitmap bitmap, ImageLoadingInfo imageLoadingInfo) {
 		this.bitmap = bitmap;
-		this.imageView = imageView;
-		this.listener = listener;
+		this.imageView = imageLoadingInfo.imageView;
+		this.memoryCacheKey = imageLoadingInfo.memoryCacheKey;
+		this.listener = imageLoadingInfo.listener;
 	}
 
 	public void run() {
+		if (!memoryCacheKey.equals(ImageLoader.getInstance().getLoadingUriForView(imageView))) {
+			listener.onLoadingCancelled();
+			return;
+		}
 		imageView.setImageBitmap(bitmap);
 		listener.onLoadingComplete(bitmap);
 	}
@@ -1,6 +1,11 @@
 package com.nostra13.universalimageloader.core;
 
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.core.assist.ImageQuality;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.process.BitmapProcessor;
 
 /**
  * Contains options for image display. Defines:
@@ -11,6 +16,9 @@ import com.nostra13.universalimageloader.core.assist.ImageScaleType;
  * <li>whether loaded image will be cached in memory</li>
  * <li>whether loaded image will be cached on disc</li>
  * <li>image scale type</li>
+ * <li>target size of image (if it shouldn't be defined by {@link android.widget.ImageView ImageView})</li>
+ * <li>quality tier and config of decoded bitmap</li>
+ * <li>post-processing of decoded bitmap</li>
  * <li>transformation matrix</li>
  * </ul>
  * 
@@ -33,6 +41,10 @@ public final class DisplayImageOptions {
 	private final boolean cacheInMemory;
 	private final boolean cacheOnDisc;
 	private final ImageScaleType imageScaleType;
+	private final ImageSize targetSize;
+	private final ImageQuality imageQuality;
+	private final Bitmap.Config bitmapConfig;
+	private final BitmapProcessor processor;
 
 	private DisplayImageOptions(Builder builder) {
 		stubImage = builder.stubImage;
@@ -41,6 +53,10 @@ public final class DisplayImageOptions {
 		cacheInMemory = builder.cacheInMemory;
 		cacheOnDisc = builder.cacheOnDisc;
 		imageScaleType = builder.imageScaleType;
+		targetSize = builder.targetSize;
+		imageQuality = builder.imageQuality;
+		bitmapConfig = builder.bitmapConfig;
+		processor = builder.processor;
 	}
 
 	boolean isShowStubImage() {
@@ -75,6 +91,22 @@ public final class DisplayImageOptions {
 		return imageScaleType;
 	}
 
+	ImageSize getTargetSize() {
+		return targetSize;
+	}
+
+	ImageQuality getImageQuality() {
+		return imageQuality;
+	}
+
+	Bitmap.Config getBitmapConfig() {
+		return bitmapConfig;
+	}
+
+	BitmapProcessor getProcessor() {
+		return processor;
+	}
+
 	/**
 	 * Builder for {@link DisplayImageOptions}
 	 * 
@@ -87,6 +119,10 @@ public final class DisplayImageOptions {
 		private boolean cacheInMemory = false;
 		private boolean cacheOnDisc = false;
 		private ImageScaleType imageScaleType = ImageScaleType.POWER_OF_2;
+		private ImageSize targetSize = null;
+		private ImageQuality imageQuality = ImageQuality.HIGH;
+		private Bitmap.Config bitmapConfig = null;
+		private BitmapProcessor processor = null;
 
 		/**
 		 * Stub image will be displayed in {@link android.widget.ImageView ImageView} during image loading
@@ -138,6 +174,49 @@ public final class DisplayImageOptions {
 			return this;
 		}
 
+		/**
+		 * Sets target size of image (in pixels). Image will be decoded and cached in memory for this size regardless of
+		 * {@link android.widget.ImageView ImageView} size. Useful for views which are sized by their content
+		 * (<b>wrap_content</b>) and for views which aren't laid out yet.<br />
+		 * By default: size is defined by ImageView layout parameters or measured size.
+		 */
+		public Builder targetSize(int width, int height) {
+			if (width <= 0 || height <= 0) throw new IllegalArgumentException("width and height must be positive numbers");
+			targetSize = new ImageSize(width, height);
+			return this;
+		}
+
+		/**
+		 * Sets {@link ImageQuality quality tier} of decoded images. Images decoded with different quality are cached in
+		 * memory separately. Default value - {@link ImageQuality#HIGH}
+		 */
+		public Builder imageQuality(ImageQuality imageQuality) {
+			this.imageQuality = imageQuality;
+			return this;
+		}
+
+		/**
+		 * Sets preferred {@link Bitmap.Config config} of decoded bitmaps. It overrides config chosen by
+		 * {@linkplain #imageQuality(ImageQuality) quality tier} (decoding hints of quality tier are applied anyway).
+		 * Decoder can ignore preferred config (i.e. if image has transparency and config doesn't support it).<br />
+		 * By default: config is chosen by quality tier.
+		 */
+		public Builder bitmapConfig(Bitmap.Config bitmapConfig) {
+			this.bitmapConfig = bitmapConfig;
+			return this;
+		}
+
+		/**
+		 * Sets {@link BitmapProcessor processor} for decoded bitmaps. Bitmap is processed on display image thread before
+		 * caching in memory. Processed bitmaps are cached in memory under their own keys (original images are cached
+		 * on disc as usual).<br />
+		 * By default: bitmaps aren't processed.
+		 */
+		public Builder processor(BitmapProcessor processor) {
+			this.processor = processor;
+			return this;
+		}
+
 		/** Builds configured {@link DisplayImageOptions} object */
 		public DisplayImageOptions build() {
 			return new DisplayImageOptions(this);
@@ -0,0 +1,356 @@
+package com.nostra13.universalimageloader.core;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
+
+/**
+ * Bounded work queue for display image executors. Tasks are taken in {@linkplain QueueProcessingType defined order}.
+ * When queue is full the oldest task is dropped (and cancelled) in favour of the new one. Tasks which became not actual
+ * while waiting in queue (all their ImageViews were reused) are cancelled and skipped instead of being started.<br />
+ * Queue can be {@linkplain #pause() paused}: tasks are accepted but not handed out to executor threads until
+ * {@linkplain #resume() resume}.<br />
+ * {@linkplain LoadAndDisplayImageTask#isPrefetch() Prefetch tasks} are kept in separate lane ordered by their priority.
+ * They are handed out only if there are no display tasks and can be {@linkplain #promote(LoadAndDisplayImageTask)
+ * promoted} to display tasks lane.
+ * 
+ * @see LoadAndDisplayImageTask
+ */
+final class DisplayImageTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	private final QueueProcessingType processingType;
+	private final int capacity;
+
+	/** Head of the list is the next task for processing. Guarded by {@link #lock}. */
+	private final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+	/** Prefetch tasks (the highest priority is the first). Guarded by {@link #lock}. */
+	private final LinkedList<LoadAndDisplayImageTask> prefetchTasks = new LinkedList<LoadAndDisplayImageTask>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	/** Guarded by {@link #lock} */
+	private boolean paused = false;
+
+	/**
+	 * @param processingType
+	 *            Order of task processing
+	 * @param capacity
+	 *            Maximum count of queued tasks (and separately of queued prefetch tasks). If queue exceeds this limit
+	 *            then the oldest task (or prefetch task with the lowest priority) is dropped.
+	 */
+	DisplayImageTaskQueue(QueueProcessingType processingType, int capacity) {
+		this.processingType = processingType;
+		this.capacity = capacity;
+	}
+
+	@Override
+	public boolean offer(Runnable task) {
+		if (task == null) throw new NullPointerException();
+
+		List<Runnable> droppedTasks = null;
+		lock.lock();
+		try {
+			if (isPrefetch(task)) {
+				droppedTasks = offerPrefetch((LoadAndDisplayImageTask) task);
+			} else {
+				if (processingType == QueueProcessingType.LIFO) {
+					tasks.addFirst(task);
+				} else {
+					tasks.addLast(task);
+				}
+				if (tasks.size() > capacity) {
+					droppedTasks = dropNotActualTasks();
+				}
+				while (tasks.size() > capacity) {
+					droppedTasks.add(processingType == QueueProcessingType.LIFO ? tasks.removeLast() : tasks.removeFirst());
+				}
+			}
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+
+		if (droppedTasks != null) {
+			for (Runnable droppedTask : droppedTasks) {
+				cancel(droppedTask);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Inserts prefetch task according its priority. Must be called under {@link #lock}.
+	 * 
+	 * @return Dropped prefetch tasks or <b>null</b>
+	 */
+	private List<Runnable> offerPrefetch(LoadAndDisplayImageTask task) {
+		int priority = task.getPriority();
+		ListIterator<LoadAndDisplayImageTask> it = prefetchTasks.listIterator();
+		while (it.hasNext()) {
+			int queuedPriority = it.next().getPriority();
+			if (queuedPriority < priority || (queuedPriority == priority && processingType == QueueProcessingType.LIFO)) {
+				it.previous();
+				break;
+			}
+		}
+		it.add(task);
+
+		List<Runnable> droppedTasks = null;
+		if (prefetchTasks.size() > capacity) {
+			droppedTasks = new ArrayList<Runnable>();
+			while (prefetchTasks.size() > capacity) {
+				droppedTasks.add(prefetchTasks.removeLast());
+			}
+		}
+		return droppedTasks;
+	}
+
+	/**
+	 * Moves task from prefetch lane to display tasks lane. Should be called when display request was attached to
+	 * prefetch task. Does nothing if task isn't queued as prefetch task.
+	 */
+	void promote(LoadAndDisplayImageTask task) {
+		boolean removed;
+		lock.lock();
+		try {
+			removed = prefetchTasks.remove(task);
+		} finally {
+			lock.unlock();
+		}
+		if (removed) {
+			offer(task);
+		}
+	}
+
+	@Override
+	public boolean offer(Runnable task, long timeout, TimeUnit unit) {
+		return offer(task);
+	}
+
+	@Override
+	public void put(Runnable task) {
+		offer(task);
+	}
+
+	/** Stops handing out tasks to executor threads. Tasks which are running at this moment aren't affected. */
+	void pause() {
+		lock.lock();
+		try {
+			paused = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Resumes handing out tasks to executor threads */
+	void resume() {
+		lock.lock();
+		try {
+			paused = false;
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		while (true) {
+			Runnable task;
+			lock.lockInterruptibly();
+			try {
+				while (isEmptyOrPaused()) {
+					notEmpty.await();
+				}
+				task = removeNext();
+			} finally {
+				lock.unlock();
+			}
+			if (isActual(task)) {
+				return task;
+			}
+		}
+	}
+
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		while (true) {
+			Runnable task;
+			lock.lockInterruptibly();
+			try {
+				while (isEmptyOrPaused()) {
+					if (nanos <= 0) {
+						return null;
+					}
+					nanos = notEmpty.awaitNanos(nanos);
+				}
+				task = removeNext();
+			} finally {
+				lock.unlock();
+			}
+			if (isActual(task)) {
+				return task;
+			}
+		}
+	}
+
+	@Override
+	public Runnable poll() {
+		while (true) {
+			Runnable task;
+			lock.lock();
+			try {
+				if (isEmptyOrPaused()) {
+					return null;
+				}
+				task = removeNext();
+			} finally {
+				lock.unlock();
+			}
+			if (isActual(task)) {
+				return task;
+			}
+		}
+	}
+
+	@Override
+	public Runnable peek() {
+		lock.lock();
+		try {
+			return tasks.isEmpty() ? prefetchTasks.peek() : tasks.peek();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object task) {
+		lock.lock();
+		try {
+			return tasks.remove(task) || prefetchTasks.remove(task);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return tasks.size() + prefetchTasks.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		// Queue never rejects tasks, it drops the oldest ones
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c, int maxElements) {
+		if (c == this) throw new IllegalArgumentException();
+
+		lock.lock();
+		try {
+			int count = 0;
+			while (count < maxElements && !(tasks.isEmpty() && prefetchTasks.isEmpty())) {
+				c.add(removeNext());
+				count++;
+			}
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns iterator over snapshot of queued tasks. Removal through iterator removes task from queue. */
+	@Override
+	public Iterator<Runnable> iterator() {
+		final Iterator<Runnable> snapshotIterator;
+		lock.lock();
+		try {
+			List<Runnable> snapshot = new ArrayList<Runnable>(tasks);
+			snapshot.addAll(prefetchTasks);
+			snapshotIterator = snapshot.iterator();
+		} finally {
+			lock.unlock();
+		}
+		return new Iterator<Runnable>() {
+			private Runnable current;
+
+			@Override
+			public boolean hasNext() {
+				return snapshotIterator.hasNext();
+			}
+
+			@Override
+			public Runnable next() {
+				current = snapshotIterator.next();
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				if (current == null) throw new IllegalStateException();
+				DisplayImageTaskQueue.this.remove(current);
+				current = null;
+			}
+		};
+	}
+
+	/** Must be called under {@link #lock} */
+	private boolean isEmptyOrPaused() {
+		return (tasks.isEmpty() && prefetchTasks.isEmpty()) || paused;
+	}
+
+	/** Removes next task for processing (display tasks go before prefetch tasks). Must be called under {@link #lock}. */
+	private Runnable removeNext() {
+		return tasks.isEmpty() ? prefetchTasks.removeFirst() : tasks.removeFirst();
+	}
+
+	/** Removes tasks which aren't actual anymore from queue and returns them. Must be called under {@link #lock}. */
+	private List<Runnable> dropNotActualTasks() {
+		List<Runnable> droppedTasks = new ArrayList<Runnable>();
+		for (Iterator<Runnable> it = tasks.iterator(); it.hasNext();) {
+			Runnable task = it.next();
+			if (task instanceof LoadAndDisplayImageTask && !((LoadAndDisplayImageTask) task).isActual()) {
+				it.remove();
+				droppedTasks.add(task);
+			}
+		}
+		return droppedTasks;
+	}
+
+	private boolean isPrefetch(Runnable task) {
+		return task instanceof LoadAndDisplayImageTask && ((LoadAndDisplayImageTask) task).isPrefetch();
+	}
+
+	/** Checks whether task is still needed. Not actual task is cancelled. */
+	private boolean isActual(Runnable task) {
+		return !(task instanceof LoadAndDisplayImageTask) || !((LoadAndDisplayImageTask) task).checkTaskIsNotActual();
+	}
+
+	private void cancel(Runnable task) {
+		if (task instanceof LoadAndDisplayImageTask) {
+			((LoadAndDisplayImageTask) task).cancel();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.nostra13.universalimageloader.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Queue of results (display bitmap tasks and listener events) which are delivered to UI thread. Results posted by
+ * display image threads are collected and run by one UI thread message per frame instead of message per result, so
+ * UI thread isn't flooded by tiny messages during fast list scrolling.<br />
+ * Delivery is aligned to {@value #FRAME_INTERVAL} ms intervals of uptime because Choreographer isn't available on all
+ * supported Android versions.
+ * 
+ * @see DisplayBitmapTask
+ */
+final class DisplayQueue {
+
+	/** {@value} */
+	private static final long FRAME_INTERVAL = 16; // ms
+
+	private final Handler handler = new Handler(Looper.getMainLooper());
+
+	/** Guarded by <b>this</b> */
+	private List<Runnable> pendingResults = new ArrayList<Runnable>();
+	/** Guarded by <b>this</b> */
+	private List<Runnable> drainedResults = new ArrayList<Runnable>();
+	/** Whether UI thread message which drains the queue is sent already. Guarded by <b>this</b>. */
+	private boolean drainScheduled = false;
+
+	private final Runnable drain = new Runnable() {
+		@Override
+		public void run() {
+			List<Runnable> results;
+			synchronized (DisplayQueue.this) {
+				results = pendingResults;
+				pendingResults = drainedResults;
+				drainedResults = results;
+				drainScheduled = false;
+			}
+			// Lists are swapped only on UI thread so drained results can be run outside of lock
+			for (Runnable result : results) {
+				result.run();
+			}
+			results.clear();
+		}
+	};
+
+	/** Adds result to the queue. Result will be run on UI thread on the next frame. Can be called from any thread. */
+	void post(Runnable result) {
+		synchronized (this) {
+			pendingResults.add(result);
+			if (drainScheduled) return;
+			drainScheduled = true;
+		}
+		long now = SystemClock.uptimeMillis();
+		handler.postAtTime(drain, now - now % FRAME_INTERVAL + FRAME_INTERVAL);
+	}
+}
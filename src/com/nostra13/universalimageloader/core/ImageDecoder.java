@@ -1,7 +1,11 @@
 package com.nostra13.universalimageloader.core;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
 
 import android.graphics.Bitmap;
@@ -9,22 +13,41 @@ import android.graphics.BitmapFactory;
 import android.graphics.BitmapFactory.Options;
 import android.widget.ImageView.ScaleType;
 
+import com.nostra13.universalimageloader.core.assist.ImageQuality;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.MappedFileInputStream;
 import com.nostra13.universalimageloader.core.download.ImageDownloader;
 
 /**
- * Decodes images to {@link Bitmap}
+ * Decodes images to {@link Bitmap}. Image is retrieved by URI or it's decoded from encoded image bytes (e.g. from
+ * {@linkplain com.nostra13.universalimageloader.cache.memory.impl.EncodedMemoryCache encoded memory cache}). If
+ * {@link DecodeMemoryBudget memory budget} is defined then estimated size of decoded bitmap is reserved from the budget
+ * before decoding. Reservation of decoded bitmap is kept until {@link #releaseMemory()} is called (i.e. until bitmap is
+ * put into memory cache which accounts it then), reservation is released at once if decoding fails.
  * 
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * 
  * @see ImageScaleType
  * @see ImageDownloader
+ * @see DecodeMemoryBudget
  */
 class ImageDecoder {
 
+	/**
+	 * Amount of bytes which can be read by bounds decoding without losing ability to reset the stream. Image headers
+	 * (incl. EXIF data) fit into this limit in most cases.
+	 */
+	private static final int HEADER_READ_LIMIT = 64 * 1024; // 64 KB
+	private static final int BUFFER_SIZE = 8 * 1024; // 8 KB
+	private static final String MIME_TYPE_JPEG = "image/jpeg";
+
 	private final URI imageUri;
 	private final ImageDownloader imageDownloader;
+	private final DecodeMemoryBudget memoryBudget;
+	private final byte[] encodedImage;
+	/** Size of budget reservation which is held for the last decoded bitmap */
+	private int reservedSize = 0;
 
 	/**
 	 * @param imageUri
@@ -34,8 +57,35 @@ class ImageDecoder {
 	 * 
 	 */
 	ImageDecoder(URI imageUri, ImageDownloader imageDownloader) {
+		this(imageUri, imageDownloader, null);
+	}
+
+	/**
+	 * @param imageUri
+	 *            Image URI (<b>i.e.:</b> "http://site.com/image.png", "file:///mnt/sdcard/image.png")
+	 * @param imageDownloader
+	 *            Image downloader
+	 * @param memoryBudget
+	 *            Memory budget for decoded bitmaps. Can be <b>null</b>.
+	 */
+	ImageDecoder(URI imageUri, ImageDownloader imageDownloader, DecodeMemoryBudget memoryBudget) {
 		this.imageUri = imageUri;
 		this.imageDownloader = imageDownloader;
+		this.memoryBudget = memoryBudget;
+		this.encodedImage = null;
+	}
+
+	/**
+	 * @param encodedImage
+	 *            Encoded image bytes (JPEG, PNG, etc.)
+	 * @param memoryBudget
+	 *            Memory budget for decoded bitmaps. Can be <b>null</b>.
+	 */
+	ImageDecoder(byte[] encodedImage, DecodeMemoryBudget memoryBudget) {
+		this.imageUri = null;
+		this.imageDownloader = null;
+		this.memoryBudget = memoryBudget;
+		this.encodedImage = encodedImage;
 	}
 
 	/**
@@ -67,42 +117,136 @@ class ImageDecoder {
 	 * 
 	 * @return Decoded bitmap
 	 * @throws IOException
+	 * @throws InterruptedIOException
+	 *             if thread was interrupted while waiting for memory budget
 	 */
 	public Bitmap decode(ImageSize targetSize, ImageScaleType scaleType, ScaleType viewScaleType) throws IOException {
-		Options decodeOptions = getBitmapOptionsForImageDecoding(targetSize, scaleType, viewScaleType);
-		InputStream imageStream = imageDownloader.getStream(imageUri);
+		return decode(targetSize, scaleType, viewScaleType, ImageQuality.HIGH, null);
+	}
+
+	/**
+	 * Decodes image from URI into {@link Bitmap}. Image is scaled close to incoming {@link ImageSize image size} during
+	 * decoding (depend on incoming image scale type).
+	 * 
+	 * @param targetSize
+	 *            Image size to scale to during decoding
+	 * @param scaleType
+	 *            {@link ImageScaleType Image scale type}
+	 * @param viewScaleType
+	 *            {@link ScaleType ImageView scale type}
+	 * @param quality
+	 *            {@link ImageQuality Quality tier} of decoded image
+	 * @param bitmapConfig
+	 *            Preferred config of decoded bitmap. If <b>null</b> then config is chosen according to quality tier.
+	 * 
+	 * @return Decoded bitmap
+	 * @throws IOException
+	 * @throws InterruptedIOException
+	 *             if thread was interrupted while waiting for memory budget
+	 */
+	public Bitmap decode(ImageSize targetSize, ImageScaleType scaleType, ScaleType viewScaleType, ImageQuality quality, Bitmap.Config bitmapConfig) throws IOException {
+		releaseMemory();
+		InputStream imageStream = openImageStream();
 		try {
-			return BitmapFactory.decodeStream(imageStream, null, decodeOptions);
+			// Decode image bounds from the header bytes and rewind the same stream for decoding
+			imageStream.mark(HEADER_READ_LIMIT);
+			Options bounds = decodeImageBounds(imageStream);
+			int imageWidth = bounds.outWidth;
+			int imageHeight = bounds.outHeight;
+
+			Options decodeOptions = getBitmapOptionsForImageDecoding(bounds.outMimeType, quality, bitmapConfig);
+			decodeOptions.inSampleSize = computeImageScale(imageWidth, imageHeight, targetSize, scaleType, viewScaleType);
+
+			if (memoryBudget != null && imageWidth > 0 && imageHeight > 0) {
+				Bitmap.Config config = decodeOptions.inPreferredConfig;
+				decodeOptions.inSampleSize = memoryBudget.fitSampleSize(imageWidth, imageHeight, decodeOptions.inSampleSize, config);
+				int size = DecodeMemoryBudget.estimateBitmapSize(imageWidth, imageHeight, decodeOptions.inSampleSize, config);
+				memoryBudget.reserve(size);
+				reservedSize = size;
+			}
+			Bitmap bitmap = null;
+			try {
+				imageStream = resetStream(imageStream);
+				bitmap = BitmapFactory.decodeStream(imageStream, null, decodeOptions);
+				return bitmap;
+			} finally {
+				if (bitmap == null) {
+					releaseMemory();
+				}
+			}
 		} finally {
 			imageStream.close();
 		}
 	}
 
-	private Options getBitmapOptionsForImageDecoding(ImageSize targetSize, ImageScaleType scaleType, ScaleType viewScaleType) throws IOException {
+	/**
+	 * Releases budget reservation of the last decoded bitmap. Must be called when bitmap is put into memory cache or
+	 * isn't needed anymore.
+	 */
+	void releaseMemory() {
+		if (reservedSize > 0) {
+			memoryBudget.release(reservedSize);
+			reservedSize = 0;
+		}
+	}
+
+	/**
+	 * Rewinds image stream to the beginning. If header was larger than {@link #HEADER_READ_LIMIT} then stream can't be
+	 * reset so new stream is retrieved.
+	 */
+	private InputStream resetStream(InputStream imageStream) throws IOException {
+		try {
+			imageStream.reset();
+			return imageStream;
+		} catch (IOException e) {
+			imageStream.close();
+			return openImageStream();
+		}
+	}
+
+	/**
+	 * Opens stream of encoded image. Stream is buffered only if it doesn't support mark/reset by itself (e.g.
+	 * {@linkplain MappedFileInputStream mapped file} of disc cache is read without extra copying).
+	 */
+	private InputStream openImageStream() throws IOException {
+		if (encodedImage != null) {
+			return new ByteArrayInputStream(encodedImage);
+		}
+		InputStream imageStream = imageDownloader.getStream(imageUri);
+		return imageStream.markSupported() ? imageStream : new BufferedInputStream(imageStream, BUFFER_SIZE);
+	}
+
+	private Options getBitmapOptionsForImageDecoding(String mimeType, ImageQuality quality, Bitmap.Config bitmapConfig) {
 		Options options = new Options();
-		options.inSampleSize = computeImageScale(targetSize, scaleType, viewScaleType);
+		if (bitmapConfig == null) {
+			// Only JPEG is surely opaque
+			boolean opaque = MIME_TYPE_JPEG.equals(mimeType);
+			bitmapConfig = quality != ImageQuality.HIGH && opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+		}
+		options.inPreferredConfig = bitmapConfig;
+		options.inDither = bitmapConfig == Bitmap.Config.RGB_565 || bitmapConfig == Bitmap.Config.ARGB_4444;
+		if (quality == ImageQuality.LOW) {
+			options.inPurgeable = true;
+			options.inInputShareable = true;
+		}
 		return options;
 	}
 
-	private int computeImageScale(ImageSize targetSize, ImageScaleType scaleType, ScaleType viewScaleType) throws IOException {
-		int targetWidth = targetSize.getWidth();
-		int targetHeight = targetSize.getHeight();
-
-		// decode image size
+	/** Decodes image size. Returned options contain image width and height (or -1 if image can't be decoded). */
+	private Options decodeImageBounds(InputStream imageStream) {
 		Options options = new Options();
 		options.inJustDecodeBounds = true;
-		InputStream imageStream = imageDownloader.getStream(imageUri);
-		try {
-			BitmapFactory.decodeStream(imageStream, null, options);
-		} finally {
-			imageStream.close();
-		}
+		BitmapFactory.decodeStream(new UnmarkableInputStream(imageStream), null, options);
+		return options;
+	}
+
+	private int computeImageScale(int imageWidth, int imageHeight, ImageSize targetSize, ImageScaleType scaleType, ScaleType viewScaleType) {
+		int targetWidth = targetSize.getWidth();
+		int targetHeight = targetSize.getHeight();
 
 		int scale = 1;
-		int imageWidth = options.outWidth;
-		int imageHeight = options.outHeight;
 		int widthScale = imageWidth / targetWidth;
-		int heightScale = imageWidth / targetHeight;
+		int heightScale = imageHeight / targetHeight;
 		switch (viewScaleType) {
 			case FIT_XY:
 			case FIT_START:
@@ -147,4 +291,35 @@ class ImageDecoder {
 
 		return scale;
 	}
+
+	/**
+	 * Hides mark/reset support of wrapped stream. {@link BitmapFactory} re-marks markable streams with its own small
+	 * read limit, so the mark set before bounds decoding would be lost.
+	 */
+	private static class UnmarkableInputStream extends FilterInputStream {
+
+		UnmarkableInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void mark(int readlimit) {
+			// Do nothing
+		}
+
+		@Override
+		public void reset() throws IOException {
+			throw new IOException("mark/reset not supported");
+		}
+
+		@Override
+		public void close() {
+			// Wrapped stream is closed by decoder
+		}
+	}
 }
\ No newline at end of file
@@ -1,21 +1,28 @@
 package com.nostra13.universalimageloader.core;
 
 import java.lang.reflect.Field;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import android.content.res.Configuration;
 import android.graphics.Bitmap;
-import android.os.Handler;
 import android.util.Log;
+import android.view.View;
 import android.view.ViewGroup.LayoutParams;
 import android.widget.ImageView;
 
 import com.nostra13.universalimageloader.cache.disc.DiscCacheAware;
+import com.nostra13.universalimageloader.cache.disc.IndexedDiscCache;
+import com.nostra13.universalimageloader.cache.disc.RevalidatedDiscCache;
 import com.nostra13.universalimageloader.cache.memory.MemoryCacheAware;
+import com.nostra13.universalimageloader.cache.memory.impl.EncodedMemoryCache;
+import com.nostra13.universalimageloader.core.assist.ImageLoaderStatsListener;
 import com.nostra13.universalimageloader.core.assist.ImageLoadingListener;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.MemoryCacheKeyUtil;
@@ -32,16 +39,32 @@ public class ImageLoader {
 	public static final String TAG = ImageLoader.class.getSimpleName();
 
 	private static final String ERROR_WRONG_ARGUMENTS = "Wrong arguments were passed to displayImage() method (ImageView reference are required)";
+	private static final String ERROR_WRONG_PREFETCH_ARGUMENTS = "Wrong arguments were passed to prefetch() method (URI collection is required)";
 	private static final String ERROR_NOT_INIT = "ImageLoader must be init with configuration before using";
 	private static final String ERROR_INIT_CONFIG_WITH_NULL = "ImageLoader configuration can not be initialized with null";
 	private static final String LOG_LOAD_IMAGE_FROM_MEMORY_CACHE = "Load image from memory cache [%s]";
 
+	/** Count of target size buckets between two neighboring powers of 2 */
+	private static final int SIZE_BUCKETS_PER_OCTAVE = 4;
+	/** Reflective handles are looked up once, not on every {@link #displayImage} call */
+	private static final Field IMAGE_VIEW_MAX_WIDTH_FIELD = getImageViewField("mMaxWidth");
+	private static final Field IMAGE_VIEW_MAX_HEIGHT_FIELD = getImageViewField("mMaxHeight");
+
 	private ImageLoaderConfiguration configuration;
 	private ExecutorService imageLoadingExecutor;
 	private ExecutorService cachedImageLoadingExecutor;
+	/** Chooses executor for display task. Takes disc cache checks off the UI thread. */
+	private ExecutorService taskDistributor;
+	private DisplayImageTaskQueue imageLoadingQueue;
+	private DisplayImageTaskQueue cachedImageLoadingQueue;
+	private volatile boolean paused = false;
 	private ImageLoadingListener emptyListener;
 
 	private Map<ImageView, String> cacheKeyForImageView = Collections.synchronizedMap(new WeakHashMap<ImageView, String>());
+	/** Display requests which wait for layout of their ImageViews. Accessed on UI thread only. */
+	private final Map<ImageView, DeferredDisplayRequest> deferredDisplayRequests = new WeakHashMap<ImageView, DeferredDisplayRequest>();
+	/** Display tasks which are in progress (keyed by memory cache key). Guarded by <b>itself</b>. */
+	private final Map<String, LoadAndDisplayImageTask> loadingTasks = new HashMap<String, LoadAndDisplayImageTask>();
 
 	private volatile static ImageLoader instance;
 
@@ -160,6 +183,16 @@ public class ImageLoader {
 	 *             if {@link #init(ImageLoaderConfiguration)} method wasn't called before
 	 */
 	public void displayImage(String uri, ImageView imageView, DisplayImageOptions options, ImageLoadingListener listener) {
+		displayImage(uri, imageView, options, listener, true);
+	}
+
+	/**
+	 * @param waitForLayout
+	 *            Whether display should be deferred until layout of ImageView if view is sized by its parent and its
+	 *            size is unknown yet. Otherwise such view gets {@linkplain ImageLoaderConfiguration maximum image size}.
+	 *            Display of {@link View#GONE gone} view isn't deferred, because it isn't laid out.
+	 */
+	private void displayImage(String uri, ImageView imageView, DisplayImageOptions options, ImageLoadingListener listener, boolean waitForLayout) {
 		if (configuration == null) {
 			throw new RuntimeException(ERROR_NOT_INIT);
 		}
@@ -174,6 +207,8 @@ public class ImageLoader {
 			options = configuration.defaultDisplayImageOptions;
 		}
 
+		cancelDeferredDisplay(imageView);
+
 		if (uri == null || uri.length() == 0) {
 			cacheKeyForImageView.remove(imageView);
 			listener.onLoadingStarted();
@@ -186,17 +221,42 @@ public class ImageLoader {
 			return;
 		}
 
-		ImageSize targetSize = getImageSizeScaleTo(imageView);
-		String memoryCacheKey = MemoryCacheKeyUtil.generateKey(uri, targetSize);
+		ImageSize targetSize = getImageSizeScaleTo(imageView, options, waitForLayout);
+		if (targetSize == null) {
+			// ImageView size will be known after layout
+			cacheKeyForImageView.remove(imageView);
+			if (options.isShowStubImage()) {
+				imageView.setImageResource(options.getStubImage());
+			} else if (options.isResetViewBeforeLoading()) {
+				imageView.setImageBitmap(null);
+			}
+			deferredDisplayRequests.put(imageView, new DeferredDisplayRequest(uri, imageView, options, listener));
+			return;
+		}
+
+		String imageKey = MemoryCacheKeyUtil.generateImageKey(uri, options.getImageQuality(), options.getBitmapConfig(), options.getProcessor());
+		String memoryCacheKey = MemoryCacheKeyUtil.generateKey(imageKey, targetSize);
 		cacheKeyForImageView.put(imageView, memoryCacheKey);
 
 		Bitmap bmp = configuration.memoryCache.get(memoryCacheKey);
-		if (bmp != null && !bmp.isRecycled()) {
+		Bitmap largerBmp = null;
+		if (bmp == null || bmp.isRecycled()) {
+			bmp = null;
+			largerBmp = configuration.cachedSizeIndex.findLargerVariant(imageKey, targetSize, configuration.memoryCache);
+			if (largerBmp != null && LoadAndDisplayImageTask.computeScaleFactor(largerBmp.getWidth(), largerBmp.getHeight(), targetSize, imageView.getScaleType()) >= 1) {
+				// Image is small itself, so its "larger" variant can be displayed as is
+				bmp = largerBmp;
+				largerBmp = null;
+			}
+		}
+		if (bmp != null) {
 			if (configuration.loggingEnabled) Log.i(TAG, String.format(LOG_LOAD_IMAGE_FROM_MEMORY_CACHE, memoryCacheKey));
+			configuration.stats.onMemoryCacheHit();
 			listener.onLoadingStarted();
 			imageView.setImageBitmap(bmp);
 			listener.onLoadingComplete(bmp);
 		} else {
+			configuration.stats.onMemoryCacheMiss();
 			listener.onLoadingStarted();
 
 			if (options.isShowStubImage()) {
@@ -207,27 +267,198 @@ public class ImageLoader {
 				}
 			}
 
+			ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, memoryCacheKey, imageView, targetSize, options, listener);
+			LoadAndDisplayImageTask displayImageTask;
+			LoadAndDisplayImageTask loadingTask;
+			synchronized (loadingTasks) {
+				// Join the task which already loads the same image if there is one
+				loadingTask = loadingTasks.get(memoryCacheKey);
+				if (loadingTask != null && loadingTask.attach(imageLoadingInfo)) {
+					displayImageTask = null;
+				} else {
+					if (largerBmp != null) {
+						// Scale down larger cached variant instead of decoding image again
+						displayImageTask = new LoadAndDisplayImageTask(configuration, imageLoadingInfo, largerBmp);
+					} else {
+						displayImageTask = new LoadAndDisplayImageTask(configuration, imageLoadingInfo);
+					}
+					loadingTasks.put(memoryCacheKey, displayImageTask);
+				}
+			}
+
 			checkExecutors();
-			ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, imageView, targetSize, options, listener);
-			LoadAndDisplayImageTask displayImageTask = new LoadAndDisplayImageTask(configuration, imageLoadingInfo, new Handler());
-			boolean isImageCachedOnDisc = configuration.discCache.get(uri).exists();
-			if (isImageCachedOnDisc) {
-				cachedImageLoadingExecutor.submit(displayImageTask);
+			if (displayImageTask == null) {
+				// Image could be prefetched by joined task, now it's needed for display
+				imageLoadingQueue.promote(loadingTask);
+				cachedImageLoadingQueue.promote(loadingTask);
 			} else {
-				imageLoadingExecutor.submit(displayImageTask);
+				submitTask(displayImageTask);
 			}
 		}
 	}
 
+	/**
+	 * Loads images in background and caches them on disc (and in memory if <b>targetSize</b> is defined). Nothing is
+	 * displayed. Useful to load images for list items which aren't shown yet (e.g. for next page).<br />
+	 * Prefetch tasks give way to display tasks: they are started only if there are no waiting display tasks. If
+	 * {@link #displayImage(String, ImageView, DisplayImageOptions, ImageLoadingListener) displayImage(...)} is called
+	 * for prefetched image (with the same target size) then display request joins prefetch task.<br />
+	 * <b>NOTE:</b> {@link #init(ImageLoaderConfiguration)} method must be called before this method call
+	 * 
+	 * @param uris
+	 *            Image URIs
+	 * @param targetSize
+	 *            Size which images will be displayed with (e.g.
+	 *            {@linkplain DisplayImageOptions.Builder#targetSize(int, int) target size from display options}).
+	 *            Images are decoded and cached in memory for this size. If <b>null</b> - images are cached on disc
+	 *            only.
+	 * @param priority
+	 *            Prefetch priority. Images with higher priority are prefetched first.
+	 * @throws RuntimeException
+	 *             if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 * @see #prefetch(Collection, DisplayImageOptions, int)
+	 */
+	public void prefetch(Collection<String> uris, ImageSize targetSize, int priority) {
+		DisplayImageOptions.Builder optionsBuilder = new DisplayImageOptions.Builder().cacheOnDisc();
+		if (configuration != null) {
+			optionsBuilder.imageScaleType(configuration.defaultDisplayImageOptions.getImageScaleType());
+		}
+		if (targetSize != null) {
+			optionsBuilder.cacheInMemory();
+		}
+		prefetch(uris, targetSize, optionsBuilder.build(), priority);
+	}
+
+	/**
+	 * Same as {@link #prefetch(Collection, ImageSize, int)} but images are decoded with display options (quality tier,
+	 * bitmap config, processor) which they will be displayed with. So prefetched bitmaps are the same as displayed ones
+	 * and display requests which join prefetch tasks get what they expect.<br />
+	 * <b>NOTE:</b> {@link #init(ImageLoaderConfiguration)} method must be called before this method call
+	 * 
+	 * @param uris
+	 *            Image URIs
+	 * @param options
+	 *            {@linkplain DisplayImageOptions Display options} of images. Images are decoded and cached in memory
+	 *            for {@linkplain DisplayImageOptions.Builder#targetSize(int, int) target size from options}. If target
+	 *            size isn't defined - images are cached on disc only.
+	 * @param priority
+	 *            Prefetch priority. Images with higher priority are prefetched first.
+	 * @throws RuntimeException
+	 *             if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public void prefetch(Collection<String> uris, DisplayImageOptions options, int priority) {
+		prefetch(uris, options.getTargetSize(), options, priority);
+	}
+
+	private void prefetch(Collection<String> uris, ImageSize targetSize, DisplayImageOptions options, int priority) {
+		if (configuration == null) {
+			throw new RuntimeException(ERROR_NOT_INIT);
+		}
+		if (uris == null) {
+			Log.w(TAG, ERROR_WRONG_PREFETCH_ARGUMENTS);
+			return;
+		}
+
+		ImageSize prefetchSize = null;
+		if (targetSize != null) {
+			prefetchSize = new ImageSize(roundUpToSizeBucket(targetSize.getWidth()), roundUpToSizeBucket(targetSize.getHeight()));
+		}
+
+		checkExecutors();
+		for (String uri : uris) {
+			if (uri == null || uri.length() == 0) continue;
+
+			String memoryCacheKey;
+			if (prefetchSize != null) {
+				String imageKey = MemoryCacheKeyUtil.generateImageKey(uri, options.getImageQuality(), options.getBitmapConfig(), options.getProcessor());
+				memoryCacheKey = MemoryCacheKeyUtil.generateKey(imageKey, prefetchSize);
+				Bitmap bmp = configuration.memoryCache.get(memoryCacheKey);
+				if (bmp != null && !bmp.isRecycled()) continue;
+			} else {
+				memoryCacheKey = uri;
+			}
+
+			ImageLoadingInfo imageLoadingInfo = new ImageLoadingInfo(uri, memoryCacheKey, null, prefetchSize, options, emptyListener);
+			LoadAndDisplayImageTask prefetchTask;
+			synchronized (loadingTasks) {
+				if (loadingTasks.containsKey(memoryCacheKey)) continue;
+
+				prefetchTask = new LoadAndDisplayImageTask(configuration, imageLoadingInfo, priority);
+				loadingTasks.put(memoryCacheKey, prefetchTask);
+			}
+			submitTask(prefetchTask);
+		}
+	}
+
+	/** Passes task to executor which is appropriate for it. Disc cache is checked off the calling thread. */
+	private void submitTask(final LoadAndDisplayImageTask task) {
+		if (task.isScalingCachedImage()) {
+			cachedImageLoadingExecutor.execute(task);
+			return;
+		}
+		final ExecutorService imageLoadingExecutor = this.imageLoadingExecutor;
+		final ExecutorService cachedImageLoadingExecutor = this.cachedImageLoadingExecutor;
+		taskDistributor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (isImageCached(task.getUri())) {
+					cachedImageLoadingExecutor.execute(task);
+				} else {
+					imageLoadingExecutor.execute(task);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns <b>true</b> - if image can be loaded without network request. Expired image which should be revalidated
+	 * (and maybe downloaded again) isn't considered as cached. {@linkplain IndexedDiscCache Indexed disc cache} is
+	 * checked in memory, other disc caches are checked by file existence.
+	 */
+	private boolean isImageCached(String uri) {
+		DiscCacheAware discCache = configuration.discCache;
+		if (discCache instanceof RevalidatedDiscCache && ((RevalidatedDiscCache) discCache).isExpired(uri)) {
+			return false;
+		}
+		EncodedMemoryCache encodedMemoryCache = configuration.encodedMemoryCache;
+		if (encodedMemoryCache != null && encodedMemoryCache.get(uri) != null) {
+			return true;
+		}
+		if (discCache instanceof IndexedDiscCache) {
+			return ((IndexedDiscCache) discCache).contains(uri);
+		}
+		return discCache.get(uri).exists();
+	}
+
 	private void checkExecutors() {
 		if (imageLoadingExecutor == null || imageLoadingExecutor.isShutdown()) {
-			imageLoadingExecutor = Executors.newFixedThreadPool(configuration.threadPoolSize, configuration.displayImageThreadFactory);
+			imageLoadingQueue = createTaskQueue();
+			imageLoadingExecutor = createExecutor(configuration.threadPoolSize, imageLoadingQueue);
 		}
 		if (cachedImageLoadingExecutor == null || cachedImageLoadingExecutor.isShutdown()) {
-			cachedImageLoadingExecutor = Executors.newSingleThreadExecutor(configuration.displayImageThreadFactory);
+			cachedImageLoadingQueue = createTaskQueue();
+			cachedImageLoadingExecutor = createExecutor(1, cachedImageLoadingQueue);
+		}
+		if (taskDistributor == null || taskDistributor.isShutdown()) {
+			taskDistributor = Executors.newSingleThreadExecutor(configuration.displayImageThreadFactory);
 		}
 	}
 
+	private DisplayImageTaskQueue createTaskQueue() {
+		DisplayImageTaskQueue taskQueue = new DisplayImageTaskQueue(configuration.tasksProcessingType, configuration.taskQueueSize);
+		if (paused) {
+			taskQueue.pause();
+		}
+		return taskQueue;
+	}
+
+	private ExecutorService createExecutor(int threadPoolSize, DisplayImageTaskQueue taskQueue) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS, taskQueue, configuration.displayImageThreadFactory);
+		// All tasks should go through the queue (otherwise first tasks would bypass pause)
+		executor.prestartAllCoreThreads();
+		return executor;
+	}
+
 	/** Returns memory cache */
 	public MemoryCacheAware<String, Bitmap> getMemoryCache() {
 		return configuration.memoryCache;
@@ -240,6 +471,9 @@ public class ImageLoader {
 	public void clearMemoryCache() {
 		if (configuration != null) {
 			configuration.memoryCache.clear();
+			if (configuration.encodedMemoryCache != null) {
+				configuration.encodedMemoryCache.clear();
+			}
 		}
 	}
 
@@ -258,6 +492,33 @@ public class ImageLoader {
 		}
 	}
 
+	/**
+	 * Returns snapshot of ImageLoader work statistics
+	 * 
+	 * @throws RuntimeException
+	 *             if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public ImageLoaderStats getStats() {
+		if (configuration == null) {
+			throw new RuntimeException(ERROR_NOT_INIT);
+		}
+		return configuration.stats.getStats();
+	}
+
+	/**
+	 * Sets listener which is notified about statistics changes on UI thread (not more often than once per second).
+	 * Pass <b>null</b> to remove listener.
+	 * 
+	 * @throws RuntimeException
+	 *             if {@link #init(ImageLoaderConfiguration)} method wasn't called before
+	 */
+	public void setStatsListener(ImageLoaderStatsListener listener) {
+		if (configuration == null) {
+			throw new RuntimeException(ERROR_NOT_INIT);
+		}
+		configuration.stats.setListener(listener);
+	}
+
 	/** Returns URI of image which is loading at this moment into passed {@link ImageView} */
 	public String getLoadingUriForView(ImageView imageView) {
 		return cacheKeyForImageView.get(imageView);
@@ -270,53 +531,150 @@ public class ImageLoader {
 	 *            {@link ImageView} for which display task will be cancelled
 	 */
 	public void cancelDisplayTask(ImageView imageView) {
+		cancelDeferredDisplay(imageView);
 		cacheKeyForImageView.remove(imageView);
 	}
 
-	/** Stops all running display image tasks, discards all other scheduled tasks */
+	/** Continues display request after layout of ImageView. Must be called on UI thread. */
+	void resumeDeferredDisplay(ImageView imageView, DeferredDisplayRequest request) {
+		if (deferredDisplayRequests.get(imageView) == request) {
+			deferredDisplayRequests.remove(imageView);
+			displayImage(request.uri, imageView, request.options, request.listener, false);
+		}
+	}
+
+	private void cancelDeferredDisplay(ImageView imageView) {
+		DeferredDisplayRequest request = deferredDisplayRequests.remove(imageView);
+		if (request != null) {
+			request.cancel();
+		}
+	}
+
+	/**
+	 * Pauses ImageLoader. New display image tasks won't be started until {@linkplain #resume() resume}. Already running
+	 * tasks will be finished. Useful to stop image loading while list is scrolled fast.
+	 * 
+	 * @see com.nostra13.universalimageloader.core.assist.PauseOnScrollListener
+	 */
+	public void pause() {
+		paused = true;
+		if (imageLoadingQueue != null) {
+			imageLoadingQueue.pause();
+		}
+		if (cachedImageLoadingQueue != null) {
+			cachedImageLoadingQueue.pause();
+		}
+	}
+
+	/**
+	 * Resumes waiting display image tasks. The most recently requested images (i.e. for currently visible list rows) are
+	 * loaded first if {@linkplain com.nostra13.universalimageloader.core.assist.QueueProcessingType#LIFO LIFO}
+	 * processing order is used.
+	 */
+	public void resume() {
+		paused = false;
+		if (imageLoadingQueue != null) {
+			imageLoadingQueue.resume();
+		}
+		if (cachedImageLoadingQueue != null) {
+			cachedImageLoadingQueue.resume();
+		}
+	}
+
+	/**
+	 * Stops all running display image tasks, discards all other scheduled tasks. Loading is resumed if it was paused so
+	 * worker threads don't wait for tasks in paused queues forever and can exit.
+	 */
 	public void stop() {
+		resume();
 		if (imageLoadingExecutor != null) {
 			imageLoadingExecutor.shutdown();
 		}
 		if (cachedImageLoadingExecutor != null) {
 			cachedImageLoadingExecutor.shutdown();
 		}
+		if (taskDistributor != null) {
+			taskDistributor.shutdown();
+		}
+		synchronized (loadingTasks) {
+			loadingTasks.clear();
+		}
+	}
+
+	/** Removes finished task from in-progress tasks so next display requests for its image will start new task */
+	void releaseLoadingTask(LoadAndDisplayImageTask task) {
+		synchronized (loadingTasks) {
+			String memoryCacheKey = task.getMemoryCacheKey();
+			if (loadingTasks.get(memoryCacheKey) == task) {
+				loadingTasks.remove(memoryCacheKey);
+			}
+		}
 	}
 
 	/**
-	 * Defines image size for loading at memory (for memory economy) by {@link ImageView} parameters.<br />
-	 * Size computing algorithm:<br />
-	 * 1) Get <b>layout_width</b> and <b>layout_height</b>. If both of them haven't exact value then go to step #2.</br>
-	 * 2) Get <b>maxWidth</b> and <b>maxHeight</b>. If both of them are not set then go to step #3.<br />
-	 * 3) Get device screen dimensions.
+	 * Defines target size for image. Size is rounded up to {@linkplain #roundUpToSizeBucket(int) size bucket} so close
+	 * sizes share memory cache entries. Size doesn't depend on screen orientation, so cached images stay actual after
+	 * device rotation.<br />
+	 * Size is taken from {@linkplain DisplayImageOptions.Builder#targetSize(int, int) display options} if it's set
+	 * there. Otherwise every dimension is defined by layout parameter, by measured size (if view is sized by its parent),
+	 * by max size of ImageView or by {@linkplain ImageLoaderConfiguration maximum image size} in this order.
+	 * 
+	 * @return Target size or <b>null</b> if <b>waitForLayout</b> is true and view size will be known after layout only
 	 */
-	private ImageSize getImageSizeScaleTo(ImageView imageView) {
+	private ImageSize getImageSizeScaleTo(ImageView imageView, DisplayImageOptions options, boolean waitForLayout) {
+		ImageSize sizeHint = options.getTargetSize();
+		if (sizeHint != null) {
+			return new ImageSize(roundUpToSizeBucket(sizeHint.getWidth()), roundUpToSizeBucket(sizeHint.getHeight()));
+		}
+		if (imageView.getVisibility() == View.GONE) {
+			waitForLayout = false; // Gone view isn't laid out, so it would wait forever
+		}
+
 		LayoutParams params = imageView.getLayoutParams();
 		int width = params.width; // Get layout width parameter
-		if (width <= 0) width = getFieldValue(imageView, "mMaxWidth"); // Check maxWidth parameter
+		if (width <= 0 && params.width != LayoutParams.WRAP_CONTENT) {
+			width = imageView.getWidth(); // Get measured width
+			if (width <= 0 && waitForLayout) return null;
+		}
+		if (width <= 0) width = getFieldValue(imageView, IMAGE_VIEW_MAX_WIDTH_FIELD); // Check maxWidth parameter
 		if (width <= 0) width = configuration.maxImageWidthForMemoryCache;
 
 		int height = params.height; // Get layout height parameter
-		if (height <= 0) height = getFieldValue(imageView, "mMaxHeight"); // Check maxHeight parameter
+		if (height <= 0 && params.height != LayoutParams.WRAP_CONTENT) {
+			height = imageView.getHeight(); // Get measured height
+			if (height <= 0 && waitForLayout) return null;
+		}
+		if (height <= 0) height = getFieldValue(imageView, IMAGE_VIEW_MAX_HEIGHT_FIELD); // Check maxHeight parameter
 		if (height <= 0) height = configuration.maxImageHeightForMemoryCache;
 
-		// Consider device screen orientation
-		int screenOrientation = imageView.getContext().getResources().getConfiguration().orientation;
-		if ((screenOrientation == Configuration.ORIENTATION_PORTRAIT && width > height)
-				|| (screenOrientation == Configuration.ORIENTATION_LANDSCAPE && width < height)) {
-			int tmp = width;
-			width = height;
-			height = tmp;
-		}
+		return new ImageSize(roundUpToSizeBucket(width), roundUpToSizeBucket(height));
+	}
 
-		return new ImageSize(width, height);
+	/**
+	 * Rounds size up to the nearest size bucket. There are {@link #SIZE_BUCKETS_PER_OCTAVE} buckets between every two
+	 * neighboring powers of 2 (e.g. 256, 320, 384, 448, 512).
+	 */
+	private static int roundUpToSizeBucket(int size) {
+		int step = Integer.highestOneBit(size) / SIZE_BUCKETS_PER_OCTAVE;
+		if (step <= 1) return size;
+		return (size + step - 1) / step * step;
 	}
 
-	private int getFieldValue(Object object, String fieldName) {
-		int value = 0;
+	private static Field getImageViewField(String fieldName) {
 		try {
 			Field field = ImageView.class.getDeclaredField(fieldName);
 			field.setAccessible(true);
+			return field;
+		} catch (Exception e) {
+			Log.e(TAG, e.getMessage(), e);
+			return null;
+		}
+	}
+
+	private static int getFieldValue(Object object, Field field) {
+		int value = 0;
+		if (field == null) return value;
+		try {
 			int fieldValue = (Integer) field.get(object);
 			if (fieldValue > 0 && fieldValue < Integer.MAX_VALUE) {
 				value = fieldValue;
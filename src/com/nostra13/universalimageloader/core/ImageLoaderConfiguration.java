@@ -1,6 +1,8 @@
 package com.nostra13.universalimageloader.core;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ThreadFactory;
 
 import android.content.Context;
@@ -10,16 +12,24 @@ import android.util.DisplayMetrics;
 import android.util.Log;
 
 import com.nostra13.universalimageloader.cache.disc.DiscCacheAware;
-import com.nostra13.universalimageloader.cache.disc.impl.FileCountLimitedDiscCache;
-import com.nostra13.universalimageloader.cache.disc.impl.TotalSizeLimitedDiscCache;
+import com.nostra13.universalimageloader.cache.disc.impl.JournaledDiscCache;
+import com.nostra13.universalimageloader.cache.disc.impl.LimitedAgeDiscCache;
+import com.nostra13.universalimageloader.cache.disc.impl.PolicyLimitedDiscCache;
 import com.nostra13.universalimageloader.cache.disc.impl.UnlimitedDiscCache;
 import com.nostra13.universalimageloader.cache.disc.naming.FileNameGenerator;
+import com.nostra13.universalimageloader.cache.disc.policy.EvictionPolicy;
+import com.nostra13.universalimageloader.cache.disc.policy.FileCountPolicy;
+import com.nostra13.universalimageloader.cache.disc.policy.MaxAgePolicy;
+import com.nostra13.universalimageloader.cache.disc.policy.TotalSizePolicy;
 import com.nostra13.universalimageloader.cache.memory.MemoryCacheAware;
+import com.nostra13.universalimageloader.cache.memory.TrimmableMemoryCache;
 import com.nostra13.universalimageloader.cache.memory.impl.FuzzyKeyMemoryCache;
-import com.nostra13.universalimageloader.cache.memory.impl.UsingFreqLimitedMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.EncodedMemoryCache;
+import com.nostra13.universalimageloader.cache.memory.impl.LruMemoryCache;
 import com.nostra13.universalimageloader.core.assist.FailReason;
 import com.nostra13.universalimageloader.core.assist.ImageLoadingListener;
 import com.nostra13.universalimageloader.core.assist.MemoryCacheKeyUtil;
+import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
 import com.nostra13.universalimageloader.core.download.ImageDownloader;
 import com.nostra13.universalimageloader.utils.StorageUtils;
 
@@ -43,13 +53,21 @@ public final class ImageLoaderConfiguration {
 	final CompressFormat imageCompressFormatForDiscCache;
 	final int imageQualityForDiscCache;
 	final int threadPoolSize;
+	final QueueProcessingType tasksProcessingType;
+	final int taskQueueSize;
 	final boolean handleOutOfMemory;
 	final MemoryCacheAware<String, Bitmap> memoryCache;
+	final boolean denyCacheImageMultipleSizesInMemory;
+	final EncodedMemoryCache encodedMemoryCache;
+	final DecodeMemoryBudget decodeMemoryBudget;
 	final DiscCacheAware discCache;
 	final DisplayImageOptions defaultDisplayImageOptions;
 	final ThreadFactory displayImageThreadFactory;
 	final boolean loggingEnabled;
 	final ImageDownloader downloader;
+	final StatsCollector stats;
+	final CachedSizeIndex cachedSizeIndex;
+	final DisplayQueue displayQueue;
 
 	private ImageLoaderConfiguration(final Builder builder) {
 		maxImageWidthForMemoryCache = builder.maxImageWidthForMemoryCache;
@@ -59,12 +77,20 @@ public final class ImageLoaderConfiguration {
 		imageCompressFormatForDiscCache = builder.imageCompressFormatForDiscCache;
 		imageQualityForDiscCache = builder.imageQualityForDiscCache;
 		threadPoolSize = builder.threadPoolSize;
+		tasksProcessingType = builder.tasksProcessingType;
+		taskQueueSize = builder.taskQueueSize;
 		handleOutOfMemory = builder.handleOutOfMemory;
 		discCache = builder.discCache;
 		memoryCache = builder.memoryCache;
+		denyCacheImageMultipleSizesInMemory = builder.denyCacheImageMultipleSizesInMemory;
+		encodedMemoryCache = builder.encodedMemoryCacheSize > 0 ? new EncodedMemoryCache(builder.encodedMemoryCacheSize) : null;
+		decodeMemoryBudget = new DecodeMemoryBudget(builder.memoryBudget, memoryCache);
 		defaultDisplayImageOptions = builder.defaultDisplayImageOptions;
 		loggingEnabled = builder.loggingEnabled;
 		downloader = builder.downloader;
+		stats = new StatsCollector(memoryCache, discCache);
+		cachedSizeIndex = new CachedSizeIndex();
+		displayQueue = new DisplayQueue();
 		displayImageThreadFactory = new ThreadFactory() {
 			@Override
 			public Thread newThread(Runnable r) {
@@ -85,9 +111,13 @@ public final class ImageLoaderConfiguration {
 	 * <li>maxImageHeightForDiscCache = unlimited</li>
 	 * <li>threadPoolSize = {@link Builder#DEFAULT_THREAD_POOL_SIZE this}</li>
 	 * <li>threadPriority = {@link Builder#DEFAULT_THREAD_PRIORITY this}</li>
+	 * <li>tasksProcessingOrder = {@link QueueProcessingType#LIFO}</li>
+	 * <li>taskQueueSize = {@link Builder#DEFAULT_TASK_QUEUE_SIZE this}</li>
 	 * <li>allow to cache different sizes of image in memory</li>
-	 * <li>memoryCache = {@link UsingFreqLimitedCache} with limited memory cache size (
+	 * <li>memoryCache = {@link LruMemoryCache} with limited memory cache size (
 	 * {@link Builder#DEFAULT_MEMORY_CACHE_SIZE this} bytes)</li>
+	 * <li>memoryBudget = maximum size of memory cache + 1/8 of maximum heap size</li>
+	 * <li>encoded memory cache disabled</li>
 	 * <li>discCache = {@link UnlimitedDiscCache}</li>
 	 * <li>imageDownloader = {@link ImageDownloader#createDefault()}</li>
 	 * <li>discCacheFileNameGenerator = {@link FileNameGenerator#createDefault()}</li>
@@ -110,14 +140,18 @@ public final class ImageLoaderConfiguration {
 		private static final String WARNING_MEMORY_CACHE_ALREADY_SET = "You already have set memory cache. This method call will make no effect.";
 		private static final String WARNING_OVERLAP_DISC_CACHE_SIZE = "This method's call overlaps discCacheSize() method call";
 		private static final String WARNING_OVERLAP_DISC_CACHE_FILE_COUNT = "This method's call overlaps discCacheFileCount() method call";
+		private static final String WARNING_OVERLAP_DISC_CACHE_MAX_AGE = "This method's call overlaps discCacheMaxAge() method call";
 		private static final String WARNING_OVERLAP_DISC_CACHE_FILE_NAME_GENERATOR = "This method's call overlaps discCacheFileNameGenerator() method call";
 		private static final String WARNING_DISC_CACHE_ALREADY_SET = "You already have set disc cache. This method call will make no effect.";
+		private static final String ERROR_MEMORY_BUDGET_NOT_SET = "memoryBudget() must be set for memory cache which isn't TrimmableMemoryCache";
 
 		/** {@value} */
 		public static final int DEFAULT_THREAD_POOL_SIZE = 3;
 		/** {@value} */
 		public static final int DEFAULT_THREAD_PRIORITY = Thread.NORM_PRIORITY - 1;
 		/** {@value} */
+		public static final int DEFAULT_TASK_QUEUE_SIZE = 50;
+		/** {@value} */
 		public static final int DEFAULT_MEMORY_CACHE_SIZE = 2 * 1024 * 1024; // bytes
 
 		private Context context;
@@ -131,12 +165,17 @@ public final class ImageLoaderConfiguration {
 
 		private int threadPoolSize = DEFAULT_THREAD_POOL_SIZE;
 		private int threadPriority = DEFAULT_THREAD_PRIORITY;
+		private QueueProcessingType tasksProcessingType = QueueProcessingType.LIFO;
+		private int taskQueueSize = DEFAULT_TASK_QUEUE_SIZE;
 		private boolean denyCacheImageMultipleSizesInMemory = false;
 		private boolean handleOutOfMemory = true;
 
 		private int memoryCacheSize = DEFAULT_MEMORY_CACHE_SIZE;
-		private int discCacheSize = 0;
+		private int memoryBudget = 0;
+		private int encodedMemoryCacheSize = 0;
+		private long discCacheSize = 0;
 		private int discCacheFileCount = 0;
+		private long discCacheMaxAge = 0;
 
 		private MemoryCacheAware<String, Bitmap> memoryCache = null;
 		private DiscCacheAware discCache = null;
@@ -216,6 +255,28 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * Sets order in which queued display image tasks are processed.<br />
+		 * Default value - {@link QueueProcessingType#LIFO} (images for the most recently bound ImageViews are loaded
+		 * first)
+		 */
+		public Builder tasksProcessingOrder(QueueProcessingType tasksProcessingType) {
+			this.tasksProcessingType = tasksProcessingType;
+			return this;
+		}
+
+		/**
+		 * Sets maximum count of display image tasks waiting for execution (separately for network and disc cache
+		 * loadings). If this limit is exceeded then the oldest queued task is cancelled.<br />
+		 * Default value - {@link #DEFAULT_TASK_QUEUE_SIZE this}
+		 */
+		public Builder taskQueueSize(int taskQueueSize) {
+			if (taskQueueSize <= 0) throw new IllegalArgumentException("taskQueueSize must be a positive number");
+
+			this.taskQueueSize = taskQueueSize;
+			return this;
+		}
+
 		/**
 		 * When you display an image in a small {@link android.widget.ImageView ImageView} and later you try to display
 		 * this image (from identical URI) in a larger {@link android.widget.ImageView ImageView} so decoded image of
@@ -230,7 +291,7 @@ public final class ImageLoaderConfiguration {
 		}
 
 		/**
-		 * ImageLoader try clean memory and re-display image it self when {@link OutOfMemoryError} occurs. You can
+		 * ImageLoader re-decodes image with smaller size when {@link OutOfMemoryError} occurs. You can
 		 * switch off this feature by this method and process error by your way (you can know that
 		 * {@link OutOfMemoryError} occurred if you got {@link FailReason#OUT_OF_MEMORY} in
 		 * {@link ImageLoadingListener#onLoadingFailed(FailReason)}).
@@ -244,8 +305,7 @@ public final class ImageLoaderConfiguration {
 		 * Sets maximum memory cache size for {@link android.graphics.Bitmap bitmaps} (in bytes).<br />
 		 * Default value - {@link #DEFAULT_MEMORY_CACHE_SIZE this}<br />
 		 * <b>NOTE:</b> If you use this method then
-		 * {@link com.nostra13.universalimageloader.cache.memory.impl.UsingFreqLimitedMemoryCache UsingFreqLimitedCache}
-		 * will be used as memory cache. You can use {@link #memoryCache(MemoryCacheAware)} method for introduction your
+		 * {@link LruMemoryCache} will be used as memory cache. You can use {@link #memoryCache(MemoryCacheAware)} method for introduction your
 		 * own implementation of {@link MemoryCacheAware}.
 		 */
 		public Builder memoryCacheSize(int memoryCacheSize) {
@@ -258,10 +318,11 @@ public final class ImageLoaderConfiguration {
 
 		/**
 		 * Sets memory cache for {@link android.graphics.Bitmap bitmaps}.<br />
-		 * Default value - {@link com.nostra13.universalimageloader.cache.memory.impl.UsingFreqLimitedMemoryCache
-		 * UsingFreqLimitedCache} with limited memory cache size (size = {@link #DEFAULT_MEMORY_CACHE_SIZE this})<br />
+		 * Default value - {@link LruMemoryCache} with limited memory cache size (size =
+		 * {@link #DEFAULT_MEMORY_CACHE_SIZE this})<br />
 		 * <b>NOTE:</b> You can use {@link #memoryCacheSize(int)} method instead of this method to simplify memory cache
-		 * tuning.
+		 * tuning.<br />
+		 * <b>NOTE:</b> If cache isn't {@link TrimmableMemoryCache} then {@link #memoryBudget(int)} must be set too.
 		 */
 		public Builder memoryCache(MemoryCacheAware<String, Bitmap> memoryCache) {
 			if (memoryCacheSize != DEFAULT_MEMORY_CACHE_SIZE) Log.w(ImageLoader.TAG, WARNING_OVERLAP_MEMORY_CACHE_SIZE);
@@ -270,18 +331,48 @@ public final class ImageLoaderConfiguration {
 			return this;
 		}
 
+		/**
+		 * Enables {@linkplain EncodedMemoryCache memory cache of encoded images} and sets its maximum size (in bytes).
+		 * Encoded images (as they are stored on disc) of recently used images are kept in memory, so bitmap which was
+		 * evicted from memory cache is decoded from memory instead of reading from disc. Encoded image takes several
+		 * times less memory than bitmap, so this cache keeps much larger working set than bitmap memory cache.<br />
+		 * <b>NOTE:</b> Only images which are {@linkplain DisplayImageOptions.Builder#cacheOnDisc() cached on disc} are
+		 * cached in this cache. Its size isn't a part of {@linkplain #memoryBudget(int) memory budget}.<br />
+		 * By default: encoded memory cache is disabled.
+		 */
+		public Builder encodedMemoryCacheSize(int encodedMemoryCacheSize) {
+			if (encodedMemoryCacheSize <= 0) throw new IllegalArgumentException("encodedMemoryCacheSize must be a positive number");
+
+			this.encodedMemoryCacheSize = encodedMemoryCacheSize;
+			return this;
+		}
+
+		/**
+		 * Sets memory budget (in bytes) which is shared by memory cache and bitmaps which are being decoded. Estimated
+		 * size of bitmap is reserved from budget before decoding: if budget is exceeded then the least recently used
+		 * bitmaps are evicted from memory cache (if it's {@link com.nostra13.universalimageloader.cache.memory.TrimmableMemoryCache
+		 * trimmable}), decoding waits for other decodings or image is decoded with smaller size.<br />
+		 * Default value - maximum size of memory cache + 1/8 of maximum heap size. <b>NOTE:</b> Budget must be set if
+		 * {@linkplain #memoryCache(MemoryCacheAware) memory cache} doesn't report its maximum size (isn't trimmable).
+		 */
+		public Builder memoryBudget(int memoryBudget) {
+			if (memoryBudget <= 0) throw new IllegalArgumentException("memoryBudget must be a positive number");
+
+			this.memoryBudget = memoryBudget;
+			return this;
+		}
+
 		/**
 		 * Sets maximum disc cache size for images (in bytes).<br />
 		 * By default: disc cache is unlimited.<br />
 		 * <b>NOTE:</b> If you use this method then
-		 * {@link com.nostra13.universalimageloader.cache.disc.impl.TotalSizeLimitedDiscCache TotalSizeLimitedDiscCache}
-		 * will be used as disc cache. You can use {@link #discCache(DiscCacheAware)} method for introduction your own
-		 * implementation of {@link DiscCacheAware}
+		 * {@link JournaledDiscCache} will be used as disc cache. You can use {@link #discCache(DiscCacheAware)} method for introduction your own
+		 * implementation of {@link DiscCacheAware}. If it's combined with {@link #discCacheFileCount(int)} or
+		 * {@link #discCacheMaxAge(long)} then {@link PolicyLimitedDiscCache} with all defined limits will be used.
 		 */
-		public Builder discCacheSize(int maxCacheSize) {
+		public Builder discCacheSize(long maxCacheSize) {
 			if (maxCacheSize <= 0) throw new IllegalArgumentException("maxCacheSize must be a positive number");
 			if (discCache != null) Log.w(ImageLoader.TAG, WARNING_DISC_CACHE_ALREADY_SET);
-			if (discCacheFileCount > 0) Log.w(ImageLoader.TAG, WARNING_OVERLAP_DISC_CACHE_FILE_COUNT);
 
 			this.discCacheSize = maxCacheSize;
 			return this;
@@ -290,21 +381,36 @@ public final class ImageLoaderConfiguration {
 		/**
 		 * Sets maximum file count in disc cache directory.<br />
 		 * By default: disc cache is unlimited.<br />
-		 * <b>NOTE:</b> If you use this method then
-		 * {@link com.nostra13.universalimageloader.cache.disc.impl.FileCountLimitedDiscCache FileCountLimitedDiscCache}
-		 * will be used as disc cache. You can use {@link #discCache(DiscCacheAware)} method for introduction your own
-		 * implementation of {@link DiscCacheAware}
+		 * <b>NOTE:</b> If you use this method then {@link PolicyLimitedDiscCache} will be used as disc cache (with
+		 * {@linkplain #discCacheSize(long) size} and {@linkplain #discCacheMaxAge(long) age} limits if they are
+		 * defined). You can use {@link #discCache(DiscCacheAware)} method for introduction your own implementation of
+		 * {@link DiscCacheAware}
 		 */
 		public Builder discCacheFileCount(int maxFileCount) {
 			if (maxFileCount <= 0) throw new IllegalArgumentException("maxFileCount must be a positive number");
 			if (discCache != null) Log.w(ImageLoader.TAG, WARNING_DISC_CACHE_ALREADY_SET);
-			if (discCacheSize > 0) Log.w(ImageLoader.TAG, WARNING_OVERLAP_DISC_CACHE_SIZE);
 
-			this.discCacheSize = 0;
 			this.discCacheFileCount = maxFileCount;
 			return this;
 		}
 
+		/**
+		 * Sets maximum age of files in disc cache directory (in seconds).<br />
+		 * By default: disc cache is unlimited.<br />
+		 * <b>NOTE:</b> If you use only this limit then {@link LimitedAgeDiscCache} will be used as disc cache, expired
+		 * files are revalidated by conditional requests then. If it's combined with {@linkplain #discCacheSize(long) size}
+		 * or {@linkplain #discCacheFileCount(int) file count} limits then {@link PolicyLimitedDiscCache} with all defined
+		 * limits will be used, expired files are deleted then. You can use {@link #discCache(DiscCacheAware)} method for introduction your own implementation of
+		 * {@link DiscCacheAware}
+		 */
+		public Builder discCacheMaxAge(long maxAge) {
+			if (maxAge <= 0) throw new IllegalArgumentException("maxAge must be a positive number");
+			if (discCache != null) Log.w(ImageLoader.TAG, WARNING_DISC_CACHE_ALREADY_SET);
+
+			this.discCacheMaxAge = maxAge;
+			return this;
+		}
+
 		/**
 		 * Sets name generator for files cached in disc cache.<br />
 		 * Default value - {@link FileNameGenerator#createDefault}
@@ -335,6 +441,7 @@ public final class ImageLoaderConfiguration {
 		public Builder discCache(DiscCacheAware discCache) {
 			if (discCacheSize > 0) Log.w(ImageLoader.TAG, WARNING_OVERLAP_DISC_CACHE_SIZE);
 			if (discCacheFileCount > 0) Log.w(ImageLoader.TAG, WARNING_OVERLAP_DISC_CACHE_FILE_COUNT);
+			if (discCacheMaxAge > 0) Log.w(ImageLoader.TAG, WARNING_OVERLAP_DISC_CACHE_MAX_AGE);
 			if (discCacheFileNameGenerator != null) Log.w(ImageLoader.TAG, WARNING_OVERLAP_DISC_CACHE_FILE_NAME_GENERATOR);
 
 			this.discCache = discCache;
@@ -370,19 +477,31 @@ public final class ImageLoaderConfiguration {
 					discCacheFileNameGenerator = FileNameGenerator.createDefault();
 				}
 
-				if (discCacheSize > 0) {
+				if (discCacheMaxAge > 0 && discCacheSize == 0 && discCacheFileCount == 0) {
 					File individualCacheDir = StorageUtils.getIndividualCacheDirectory(context);
-					discCache = new TotalSizeLimitedDiscCache(individualCacheDir, discCacheFileNameGenerator, discCacheSize);
-				} else if (discCacheFileCount > 0) {
+					discCache = new LimitedAgeDiscCache(individualCacheDir, discCacheFileNameGenerator, discCacheMaxAge);
+				} else if (discCacheFileCount > 0 || discCacheMaxAge > 0) {
+					List<EvictionPolicy> policies = new ArrayList<EvictionPolicy>(3);
+					if (discCacheSize > 0) policies.add(new TotalSizePolicy(discCacheSize));
+					if (discCacheFileCount > 0) policies.add(new FileCountPolicy(discCacheFileCount));
+					if (discCacheMaxAge > 0) policies.add(new MaxAgePolicy(discCacheMaxAge));
 					File individualCacheDir = StorageUtils.getIndividualCacheDirectory(context);
-					discCache = new FileCountLimitedDiscCache(individualCacheDir, discCacheFileNameGenerator, discCacheFileCount);
+					discCache = new PolicyLimitedDiscCache(individualCacheDir, discCacheFileNameGenerator, policies.toArray(new EvictionPolicy[policies.size()]));
+				} else if (discCacheSize > 0) {
+					File individualCacheDir = StorageUtils.getIndividualCacheDirectory(context);
+					discCache = new JournaledDiscCache(individualCacheDir, discCacheFileNameGenerator, discCacheSize);
 				} else {
 					File cacheDir = StorageUtils.getCacheDirectory(context);
 					discCache = new UnlimitedDiscCache(cacheDir, discCacheFileNameGenerator);
 				}
 			}
 			if (memoryCache == null) {
-				memoryCache = new UsingFreqLimitedMemoryCache(memoryCacheSize);
+				memoryCache = new LruMemoryCache(memoryCacheSize);
+			}
+			if (memoryBudget == 0) {
+				if (!(memoryCache instanceof TrimmableMemoryCache)) throw new IllegalStateException(ERROR_MEMORY_BUDGET_NOT_SET);
+				int maxCacheSize = ((TrimmableMemoryCache) memoryCache).getMaxSize();
+				memoryBudget = (int) Math.min((long) maxCacheSize + Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
 			}
 			if (denyCacheImageMultipleSizesInMemory) {
 				memoryCache = new FuzzyKeyMemoryCache<String, Bitmap>(memoryCache, MemoryCacheKeyUtil.createFuzzyKeyComparator());
@@ -0,0 +1,127 @@
+package com.nostra13.universalimageloader.core;
+
+import java.util.Arrays;
+
+/**
+ * Snapshot of {@link ImageLoader} work statistics. Counters are accumulated since {@linkplain ImageLoader#init
+ * ImageLoader initialization}. Use it to tune thread pool size, memory cache size and disc cache limits.<br />
+ * Durations are collected into histograms with power-of-2 buckets: bucket <b>i</b> counts durations less than
+ * 2<sup>i</sup> ms (and not less than the bound of previous bucket), the last bucket counts all longer durations.
+ * 
+ * @see ImageLoader#getStats()
+ * @see com.nostra13.universalimageloader.core.assist.ImageLoaderStatsListener
+ */
+public final class ImageLoaderStats {
+
+	/** {@value} */
+	public static final int HISTOGRAM_BUCKET_COUNT = 12;
+
+	/** Value of memory cache size or disc cache size if cache doesn't report its size */
+	public static final int UNKNOWN_SIZE = -1;
+
+	private final long memoryCacheHits;
+	private final long memoryCacheMisses;
+	private final long encodedMemoryCacheHits;
+	private final long discCacheHits;
+	private final long networkLoads;
+	private final long downloadedBytes;
+	private final long cancellations;
+	private final long outOfMemoryRetries;
+	private final long[] decodeTimeHistogram;
+	private final long[] queueWaitTimeHistogram;
+	private final long memoryCacheSize;
+	private final long discCacheSize;
+
+	ImageLoaderStats(long memoryCacheHits, long memoryCacheMisses, long encodedMemoryCacheHits, long discCacheHits, long networkLoads,
+			long downloadedBytes, long cancellations, long outOfMemoryRetries, long[] decodeTimeHistogram, long[] queueWaitTimeHistogram,
+			long memoryCacheSize, long discCacheSize) {
+		this.memoryCacheHits = memoryCacheHits;
+		this.memoryCacheMisses = memoryCacheMisses;
+		this.encodedMemoryCacheHits = encodedMemoryCacheHits;
+		this.discCacheHits = discCacheHits;
+		this.networkLoads = networkLoads;
+		this.downloadedBytes = downloadedBytes;
+		this.cancellations = cancellations;
+		this.outOfMemoryRetries = outOfMemoryRetries;
+		this.decodeTimeHistogram = decodeTimeHistogram;
+		this.queueWaitTimeHistogram = queueWaitTimeHistogram;
+		this.memoryCacheSize = memoryCacheSize;
+		this.discCacheSize = discCacheSize;
+	}
+
+	/** Returns count of display requests which were served from memory cache */
+	public long getMemoryCacheHits() {
+		return memoryCacheHits;
+	}
+
+	/** Returns count of display requests which weren't found in memory cache */
+	public long getMemoryCacheMisses() {
+		return memoryCacheMisses;
+	}
+
+	/** Returns count of images which were decoded from encoded memory cache (they weren't read from disc cache) */
+	public long getEncodedMemoryCacheHits() {
+		return encodedMemoryCacheHits;
+	}
+
+	/** Returns count of images which were decoded from disc cache */
+	public long getDiscCacheHits() {
+		return discCacheHits;
+	}
+
+	/** Returns count of images which were loaded from network (or other image source) */
+	public long getNetworkLoads() {
+		return networkLoads;
+	}
+
+	/** Returns count of bytes which were downloaded for disc cache */
+	public long getDownloadedBytes() {
+		return downloadedBytes;
+	}
+
+	/** Returns count of display requests which were cancelled (ImageView was reused or task was dropped from queue) */
+	public long getCancellations() {
+		return cancellations;
+	}
+
+	/** Returns count of image decodings which were repeated with smaller size because of {@link OutOfMemoryError} */
+	public long getOutOfMemoryRetries() {
+		return outOfMemoryRetries;
+	}
+
+	/** Returns histogram of image decoding time (see {@link #getHistogramBucketBound(int)}) */
+	public long[] getDecodeTimeHistogram() {
+		return decodeTimeHistogram.clone();
+	}
+
+	/** Returns histogram of time which display tasks spent in queue (see {@link #getHistogramBucketBound(int)}) */
+	public long[] getQueueWaitTimeHistogram() {
+		return queueWaitTimeHistogram.clone();
+	}
+
+	/** Returns size of bitmaps in memory cache (in bytes) or {@link #UNKNOWN_SIZE} */
+	public long getMemoryCacheSize() {
+		return memoryCacheSize;
+	}
+
+	/** Returns size of disc cache (in bytes) or {@link #UNKNOWN_SIZE} */
+	public long getDiscCacheSize() {
+		return discCacheSize;
+	}
+
+	/**
+	 * Returns upper bound (exclusive, in milliseconds) of durations which are counted in histogram bucket or
+	 * {@link Long#MAX_VALUE} for the last bucket
+	 */
+	public static long getHistogramBucketBound(int bucket) {
+		return bucket < HISTOGRAM_BUCKET_COUNT - 1 ? 1L << bucket : Long.MAX_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		return "ImageLoaderStats [memoryCacheHits=" + memoryCacheHits + ", memoryCacheMisses=" + memoryCacheMisses + ", encodedMemoryCacheHits="
+				+ encodedMemoryCacheHits + ", discCacheHits=" + discCacheHits + ", networkLoads=" + networkLoads + ", downloadedBytes=" + downloadedBytes + ", cancellations=" + cancellations + ", outOfMemoryRetries="
+				+ outOfMemoryRetries + ", decodeTimeHistogram=" + Arrays.toString(decodeTimeHistogram) + ", queueWaitTimeHistogram="
+				+ Arrays.toString(queueWaitTimeHistogram) + ", memoryCacheSize=" + memoryCacheSize + ", discCacheSize=" + discCacheSize + "]";
+	}
+}
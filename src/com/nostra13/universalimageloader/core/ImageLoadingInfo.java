@@ -7,7 +7,8 @@ import com.nostra13.universalimageloader.core.assist.ImageSize;
 import com.nostra13.universalimageloader.core.assist.MemoryCacheKeyUtil;
 
 /**
- * Information for load'n'display image task
+ * Information for load'n'display image task. Prefetch request has no ImageView, and has no target size if image is
+ * prefetched on disc only.
  * 
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @see MemoryCacheKeyUtil
@@ -23,12 +24,12 @@ final class ImageLoadingInfo {
 	final DisplayImageOptions options;
 	final ImageLoadingListener listener;
 
-	public ImageLoadingInfo(String uri, ImageView imageView, ImageSize targetSize, DisplayImageOptions options, ImageLoadingListener listener) {
+	public ImageLoadingInfo(String uri, String memoryCacheKey, ImageView imageView, ImageSize targetSize, DisplayImageOptions options, ImageLoadingListener listener) {
 		this.uri = uri;
+		this.memoryCacheKey = memoryCacheKey;
 		this.imageView = imageView;
 		this.targetSize = targetSize;
 		this.options = options;
 		this.listener = listener;
-		memoryCacheKey = MemoryCacheKeyUtil.generateKey(uri, targetSize);
 	}
 }
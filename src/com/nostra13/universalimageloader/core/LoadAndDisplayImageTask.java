@@ -1,29 +1,53 @@
 package com.nostra13.universalimageloader.core;
 
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 
 import android.graphics.Bitmap;
-import android.os.Handler;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapFactory.Options;
 import android.os.SystemClock;
 import android.util.Log;
 import android.widget.ImageView;
+import android.widget.ImageView.ScaleType;
 
+import com.nostra13.universalimageloader.cache.disc.DiscCacheAware;
+import com.nostra13.universalimageloader.cache.disc.EditableDiscCache;
+import com.nostra13.universalimageloader.cache.disc.RevalidatedDiscCache;
+import com.nostra13.universalimageloader.cache.memory.impl.EncodedMemoryCache;
 import com.nostra13.universalimageloader.core.assist.FailReason;
 import com.nostra13.universalimageloader.core.assist.ImageLoadingListener;
 import com.nostra13.universalimageloader.core.assist.ImageScaleType;
 import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.MemoryCacheKeyUtil;
+import com.nostra13.universalimageloader.core.download.HttpStatusException;
+import com.nostra13.universalimageloader.core.download.ImageResponse;
+import com.nostra13.universalimageloader.core.download.ImageValidators;
 import com.nostra13.universalimageloader.utils.FileUtils;
 
 /**
  * Presents load'n'display image task. Used to load image from Internet or file system, decode it to {@link Bitmap}, and
- * display it in {@link ImageView} through {@link DisplayBitmapTask}.
+ * display it in {@link ImageView} through {@link DisplayBitmapTask} (which is delivered by {@link DisplayQueue}).<br />
+ * Display requests for the same image (same memory cache key) which come while task is in progress can be
+ * {@linkplain #attach(ImageLoadingInfo) attached} to the task, so image is loaded and decoded only once.<br />
+ * Task can also {@linkplain ImageLoader#prefetch(java.util.Collection, ImageSize, int) prefetch} image: request without
+ * ImageView caches image on disc (and in memory if target size is defined) but doesn't display it.<br />
+ * If larger variant of image is cached in memory then task scales it down instead of decoding image again.
  * 
  * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
  * @see ImageLoaderConfiguration
@@ -32,64 +56,340 @@ import com.nostra13.universalimageloader.utils.FileUtils;
 final class LoadAndDisplayImageTask implements Runnable {
 
 	private static final String LOG_START_DISPLAY_IMAGE_TASK = "Start display image task [%s]";
+	private static final String LOG_ATTACH_TO_DISPLAY_IMAGE_TASK = "Attach to display image task [%s]";
 	private static final String LOG_LOAD_IMAGE_FROM_INTERNET = "Load image from Internet [%s]";
 	private static final String LOG_LOAD_IMAGE_FROM_DISC_CACHE = "Load image from disc cache [%s]";
+	private static final String LOG_LOAD_IMAGE_FROM_ENCODED_MEMORY_CACHE = "Load encoded image from memory cache [%s]";
+	private static final String LOG_REVALIDATE_IMAGE_ON_DISC = "Revalidate expired image on disc [%s]";
+	private static final String LOG_IMAGE_NOT_MODIFIED = "Image wasn't modified, refresh it on disc [%s]";
 	private static final String LOG_CACHE_IMAGE_IN_MEMORY = "Cache image in memory [%s]";
 	private static final String LOG_CACHE_IMAGE_ON_DISC = "Cache image on disc [%s]";
+	private static final String LOG_SCALE_CACHED_IMAGE = "Scale down larger image from memory cache [%s]";
+	private static final String LOG_PROCESS_IMAGE = "Process image [%s]";
 	private static final String LOG_DISPLAY_IMAGE_IN_IMAGEVIEW = "Display image in ImageView [%s]";
 
+	private static final String LOG_TRANSCODE_IMAGE_FOR_DISC_CACHE = "Transcode image for disc cache [%s]";
+	private static final String LOG_RESUME_DOWNLOADING = "Resume downloading from %d byte [%s]";
+	private static final String WARNING_DOWNLOAD_INTERRUPTED = "Downloading of %s was interrupted after %d bytes";
+	private static final String WARNING_PARTIAL_IMAGE_VALIDATORS = "Can't access validators of partially downloaded image %s";
+	private static final String ERROR_RENAME_FILE = "Can't rename %s to %s";
+	private static final String ERROR_CREATE_DIR = "Can't create directory %s";
+	private static final String WARNING_REVALIDATION_FAILED = "Can't revalidate %s. Expired image from disc cache is used.";
+	private static final String WARNING_IMAGE_NOT_AVAILABLE = "Image %s isn't available on server anymore (HTTP %d). It's deleted from disc cache.";
+	private static final String WARNING_DECODE_SMALLER_IMAGE = "Out of memory while decoding %s. Try to decode image of smaller size %s.";
+
 	private static final int ATTEMPT_COUNT_TO_DECODE_BITMAP = 3;
+	private static final int BUFFER_SIZE = 8 * 1024; // 8 KB
+	/**
+	 * Name of subdirectory of cache directory which contains temporary files. Disc caches don't index subdirectories,
+	 * so partially downloaded images don't count in cache size.
+	 */
+	private static final String PARTIAL_DIR_NAME = ".partial";
+	/** {@value} */
+	private static final long PARTIAL_FILE_MAX_AGE = 24 * 60 * 60 * 1000; // milliseconds
+	/** Suffix of temporary file which image is downloaded to */
+	private static final String DOWNLOADED_FILE_SUFFIX = ".download";
+	/** Suffix of temporary file which image is transcoded to */
+	private static final String TRANSCODED_FILE_SUFFIX = ".tmp";
+	/** Suffix of file which contains validators of partially downloaded image */
+	private static final String VALIDATORS_FILE_SUFFIX = ".validators";
+	/** {@value} */
+	private static final int DOWNLOAD_ATTEMPT_COUNT = 3;
+
+	/** Paths of cache files which are being saved at this moment. Guarded by <b>itself</b>. */
+	private static final Set<String> lockedFiles = new HashSet<String>();
+	/** Paths of directories of temporary files which were cleaned in this process. Guarded by <b>itself</b>. */
+	private static final Set<String> cleanedPartialDirs = new HashSet<String>();
 
 	private final ImageLoaderConfiguration configuration;
 	private final ImageLoadingInfo imageLoadingInfo;
-	private final Handler handler;
+	/** Priority of prefetch task */
+	private final int priority;
+	/** Larger variant of image from memory cache which should be scaled down. Can be <b>null</b>. */
+	private final Bitmap largerBitmap;
+	/** Validators of image downloaded by this task (<b>null</b> if they are unknown) */
+	private ImageValidators downloadedImageValidators;
+	/**
+	 * Response with modified image which was received on revalidation of expired image. Its body is cached on disc
+	 * instead of requesting image again.
+	 */
+	private ImageResponse modifiedImageResponse;
+	/** Decoder of loaded bitmap. It holds memory budget reservation for the bitmap until bitmap is cached in memory. */
+	private ImageDecoder bitmapDecoder;
+	/** Time of task creation (in milliseconds since boot) */
+	private final long creationTime = SystemClock.uptimeMillis();
+
+	/** Display requests waiting for the result of this task. Guarded by <b>this</b>. */
+	private final List<ImageLoadingInfo> imageLoadingInfos = new ArrayList<ImageLoadingInfo>();
+	/** Whether task doesn't accept new display requests anymore. Guarded by <b>this</b>. */
+	private boolean finished = false;
+
+	public LoadAndDisplayImageTask(ImageLoaderConfiguration configuration, ImageLoadingInfo imageLoadingInfo) {
+		this(configuration, imageLoadingInfo, 0, null);
+	}
 
-	public LoadAndDisplayImageTask(ImageLoaderConfiguration configuration, ImageLoadingInfo imageLoadingInfo, Handler handler) {
+	public LoadAndDisplayImageTask(ImageLoaderConfiguration configuration, ImageLoadingInfo imageLoadingInfo, int priority) {
+		this(configuration, imageLoadingInfo, priority, null);
+	}
+
+	/**
+	 * Creates task which scales down larger variant of image from memory cache (image is loaded as usual if scaling
+	 * fails)
+	 */
+	public LoadAndDisplayImageTask(ImageLoaderConfiguration configuration, ImageLoadingInfo imageLoadingInfo, Bitmap largerBitmap) {
+		this(configuration, imageLoadingInfo, 0, largerBitmap);
+	}
+
+	private LoadAndDisplayImageTask(ImageLoaderConfiguration configuration, ImageLoadingInfo imageLoadingInfo, int priority, Bitmap largerBitmap) {
 		this.configuration = configuration;
 		this.imageLoadingInfo = imageLoadingInfo;
-		this.handler = handler;
+		this.priority = priority;
+		this.largerBitmap = largerBitmap;
+		imageLoadingInfos.add(imageLoadingInfo);
 	}
 
 	@Override
 	public void run() {
 		if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_START_DISPLAY_IMAGE_TASK, imageLoadingInfo.memoryCacheKey));
+		configuration.stats.onTaskStart(SystemClock.uptimeMillis() - creationTime);
 
 		if (checkTaskIsNotActual()) return;
-		Bitmap bmp = tryLoadBitmap();
-		if (bmp == null) return;
+		if (imageLoadingInfo.targetSize == null) {
+			// Image is prefetched on disc only
+			tryCacheImageOnDisc();
+			return;
+		}
+		Bitmap bmp = null;
+		try {
+			if (largerBitmap != null) {
+				// Larger variant is processed already
+				bmp = tryScaleDownLargerBitmap();
+			}
+			if (bmp == null) {
+				bmp = tryLoadBitmap();
+				if (bmp != null && imageLoadingInfo.options.getProcessor() != null) {
+					bmp = tryProcessBitmap(bmp);
+				}
+			}
+			if (bmp == null) return;
 
-		if (checkTaskIsNotActual()) return;
-		if (imageLoadingInfo.options.isCacheInMemory()) {
-			if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_CACHE_IMAGE_IN_MEMORY, imageLoadingInfo.memoryCacheKey));
+			if (checkTaskIsNotActual()) return;
+			// Larger bitmap which didn't need scaling is cached already. Scaled down variant isn't cached if memory
+			// cache keeps one size of image: it would evict the larger source, and they would replace each other then.
+			boolean replacesLargerBitmap = largerBitmap != null && configuration.denyCacheImageMultipleSizesInMemory;
+			if (imageLoadingInfo.options.isCacheInMemory() && bmp != largerBitmap && !replacesLargerBitmap) {
+				if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_CACHE_IMAGE_IN_MEMORY, imageLoadingInfo.memoryCacheKey));
 
-			configuration.memoryCache.put(imageLoadingInfo.memoryCacheKey, bmp);
+				if (configuration.memoryCache.put(imageLoadingInfo.memoryCacheKey, bmp)) {
+					DisplayImageOptions options = imageLoadingInfo.options;
+					String imageKey = MemoryCacheKeyUtil.generateImageKey(imageLoadingInfo.uri, options.getImageQuality(), options.getBitmapConfig(), options.getProcessor());
+					configuration.cachedSizeIndex.add(imageKey, imageLoadingInfo.targetSize);
+				}
+			}
+		} finally {
+			// Decoded bitmap is accounted by memory cache now (or it isn't cached at all)
+			if (bitmapDecoder != null) {
+				bitmapDecoder.releaseMemory();
+			}
 		}
 
-		if (checkTaskIsNotActual()) return;
-		if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_DISPLAY_IMAGE_IN_IMAGEVIEW, imageLoadingInfo.memoryCacheKey));
+		for (ImageLoadingInfo info : finish()) {
+			if (info.imageView == null) continue; // prefetch request
+
+			if (isViewReused(info)) {
+				fireCancelEvent(info);
+			} else {
+				if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_DISPLAY_IMAGE_IN_IMAGEVIEW, info.memoryCacheKey));
+
+				DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(bmp, info);
+				configuration.displayQueue.post(displayBitmapTask);
+			}
+		}
+	}
+
+	/** Returns URI of image which is loaded by this task */
+	String getUri() {
+		return imageLoadingInfo.uri;
+	}
 
-		DisplayBitmapTask displayBitmapTask = new DisplayBitmapTask(bmp, imageLoadingInfo.imageView, imageLoadingInfo.listener);
-		handler.post(displayBitmapTask);
+	/** Returns memory cache key of image which is loaded by this task */
+	String getMemoryCacheKey() {
+		return imageLoadingInfo.memoryCacheKey;
+	}
+
+	/** Returns <b>true</b> - if task scales down larger variant of image from memory cache */
+	boolean isScalingCachedImage() {
+		return largerBitmap != null;
+	}
+
+	/** Returns priority of prefetch task */
+	int getPriority() {
+		return priority;
+	}
+
+	/** Returns <b>true</b> - if none of ImageViews waits for image of this task (task only prefetches image) */
+	synchronized boolean isPrefetch() {
+		for (ImageLoadingInfo info : imageLoadingInfos) {
+			if (info.imageView != null) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
-	 * Check whether the image URI of this task matches to image URI which is actual for current ImageView at this
-	 * moment and fire {@link ImageLoadingListener#onLoadingCancelled()} event if it doesn't.
+	 * Attaches display request for the same image to this task. Loaded image will be displayed in request's
+	 * {@link ImageView} too.
+	 * 
+	 * @return <b>true</b> - if request was attached, <b>false</b> - if task is already finished and new task should be
+	 *         started for the request
+	 */
+	synchronized boolean attach(ImageLoadingInfo info) {
+		if (finished) {
+			return false;
+		}
+		if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_ATTACH_TO_DISPLAY_IMAGE_TASK, info.memoryCacheKey));
+
+		imageLoadingInfos.add(info);
+		return true;
+	}
+
+	/**
+	 * Check whether the image URI of this task matches to image URIs which are actual for waiting ImageViews at this
+	 * moment and fire {@link ImageLoadingListener#onLoadingCancelled()} event for ImageViews which don't wait for it
+	 * anymore.
+	 * 
+	 * @return <b>true</b> - if none of ImageViews waits for image of this task (task is finished then)
 	 */
 	boolean checkTaskIsNotActual() {
-		String currentCacheKey = ImageLoader.getInstance().getLoadingUriForView(imageLoadingInfo.imageView);
-		// Check whether memory cache key (image URI) for current ImageView is actual. 
-		// If ImageView is reused for another task then current task should be cancelled.
-		boolean imageViewWasReused = !imageLoadingInfo.memoryCacheKey.equals(currentCacheKey);
-		if (imageViewWasReused) {
-			handler.post(new Runnable() {
-				@Override
-				public void run() {
-					imageLoadingInfo.listener.onLoadingCancelled();
+		boolean taskIsNotActual;
+		synchronized (this) {
+			for (Iterator<ImageLoadingInfo> it = imageLoadingInfos.iterator(); it.hasNext();) {
+				ImageLoadingInfo info = it.next();
+				if (isViewReused(info)) {
+					it.remove();
+					fireCancelEvent(info);
 				}
-			});
+			}
+			taskIsNotActual = imageLoadingInfos.isEmpty();
+			if (taskIsNotActual) {
+				finished = true;
+			}
+		}
+		if (taskIsNotActual) {
+			ImageLoader.getInstance().releaseLoadingTask(this);
+		}
+		return taskIsNotActual;
+	}
+
+	/** Returns <b>true</b> - if at least one ImageView still waits for image of this task */
+	synchronized boolean isActual() {
+		for (ImageLoadingInfo info : imageLoadingInfos) {
+			if (!isViewReused(info)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Cancels task which wasn't started yet. {@link ImageLoadingListener#onLoadingCancelled()} event is fired for all
+	 * waiting ImageViews.
+	 */
+	void cancel() {
+		for (ImageLoadingInfo info : finish()) {
+			fireCancelEvent(info);
+		}
+	}
+
+	private boolean isViewReused(ImageLoadingInfo info) {
+		if (info.imageView == null) return false; // prefetch request is always actual
+
+		String currentCacheKey = ImageLoader.getInstance().getLoadingUriForView(info.imageView);
+		// Check whether memory cache key (image URI) for current ImageView is actual.
+		// If ImageView is reused for another task then current task should be cancelled.
+		return !info.memoryCacheKey.equals(currentCacheKey);
+	}
+
+	/** Finishes task (new display requests can't be attached anymore) and returns all waiting display requests */
+	private List<ImageLoadingInfo> finish() {
+		List<ImageLoadingInfo> infos;
+		synchronized (this) {
+			finished = true;
+			infos = new ArrayList<ImageLoadingInfo>(imageLoadingInfos);
+			imageLoadingInfos.clear();
+		}
+		ImageLoader.getInstance().releaseLoadingTask(this);
+		return infos;
+	}
+
+	/**
+	 * Scales down larger variant of image from memory cache to target size
+	 * 
+	 * @return Scaled bitmap or <b>null</b> if larger bitmap was recycled or there is no memory for scaling
+	 */
+	private Bitmap tryScaleDownLargerBitmap() {
+		if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_SCALE_CACHED_IMAGE, imageLoadingInfo.memoryCacheKey));
+
+		try {
+			if (largerBitmap.isRecycled()) return null;
+
+			float scale = computeScaleFactor(largerBitmap.getWidth(), largerBitmap.getHeight(), imageLoadingInfo.targetSize, getViewScaleType());
+			if (scale >= 1) return largerBitmap;
+
+			int width = Math.max(Math.round(largerBitmap.getWidth() * scale), 1);
+			int height = Math.max(Math.round(largerBitmap.getHeight() * scale), 1);
+			return Bitmap.createScaledBitmap(largerBitmap, width, height, true);
+		} catch (OutOfMemoryError e) {
+			Log.e(ImageLoader.TAG, e.getMessage(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Processes decoded bitmap by processor from display options. Decoded bitmap is recycled if processor returns
+	 * another bitmap or fails.
+	 * 
+	 * @return Processed bitmap or <b>null</b> if processing failed
+	 */
+	private Bitmap tryProcessBitmap(Bitmap bitmap) {
+		if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_PROCESS_IMAGE, imageLoadingInfo.memoryCacheKey));
+
+		Bitmap processedBitmap;
+		try {
+			processedBitmap = imageLoadingInfo.options.getProcessor().process(bitmap);
+		} catch (OutOfMemoryError e) {
+			Log.e(ImageLoader.TAG, e.getMessage(), e);
+			bitmap.recycle();
+			fireImageLoadingFailedEvent(FailReason.OUT_OF_MEMORY);
+			return null;
+		}
+		if (processedBitmap != bitmap) {
+			bitmap.recycle();
+		}
+		if (processedBitmap == null) {
+			fireImageLoadingFailedEvent(FailReason.UNKNOWN);
+		}
+		return processedBitmap;
+	}
+
+	/**
+	 * Returns factor which bitmap should be scaled with to fit target size like decoded image does: bitmap covers target
+	 * size for cropping view scale types and fits into target size for others. Factor which isn't less than 1 means
+	 * bitmap doesn't need scaling down.
+	 */
+	static float computeScaleFactor(int bitmapWidth, int bitmapHeight, ImageSize targetSize, ScaleType viewScaleType) {
+		float widthScale = (float) targetSize.getWidth() / bitmapWidth;
+		float heightScale = (float) targetSize.getHeight() / bitmapHeight;
+		switch (viewScaleType) {
+			case FIT_XY:
+			case FIT_START:
+			case FIT_END:
+			case CENTER_INSIDE:
+				return Math.min(widthScale, heightScale);
+			default:
+				return Math.max(widthScale, heightScale);
 		}
-		return imageViewWasReused;
 	}
 
 	private Bitmap tryLoadBitmap() {
@@ -97,12 +397,34 @@ final class LoadAndDisplayImageTask implements Runnable {
 
 		Bitmap bitmap = null;
 		try {
+			// Try to load image from encoded memory cache
+			EncodedMemoryCache encodedMemoryCache = configuration.encodedMemoryCache;
+			if (encodedMemoryCache != null) {
+				byte[] encodedImage = encodedMemoryCache.get(imageLoadingInfo.uri);
+				if (encodedImage != null && isImageOnDiscExpired()) {
+					// Encoded image is as old as file on disc, so it must be revalidated too
+					encodedMemoryCache.remove(imageLoadingInfo.uri);
+					encodedImage = null;
+				}
+				if (encodedImage != null) {
+					if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_LOAD_IMAGE_FROM_ENCODED_MEMORY_CACHE, imageLoadingInfo.memoryCacheKey));
+
+					Bitmap b = decodeImage(new ImageDecoder(encodedImage, configuration.decodeMemoryBudget));
+					if (b != null) {
+						configuration.stats.onEncodedMemoryCacheHit();
+						return b;
+					}
+					encodedMemoryCache.remove(imageLoadingInfo.uri);
+				}
+			}
+
 			// Try to load image from disc cache
-			if (imageFile.exists()) {
+			if (imageFile.exists() && checkImageOnDiscIsActual(imageFile)) {
 				if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_LOAD_IMAGE_FROM_DISC_CACHE, imageLoadingInfo.memoryCacheKey));
 
-				Bitmap b = decodeImage(imageFile.toURI());
+				Bitmap b = decodeImageFromDisc(imageFile);
 				if (b != null) {
+					configuration.stats.onDiscCacheHit();
 					return b;
 				}
 			}
@@ -110,25 +432,26 @@ final class LoadAndDisplayImageTask implements Runnable {
 			// Load image from Web
 			if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_LOAD_IMAGE_FROM_INTERNET, imageLoadingInfo.memoryCacheKey));
 
-			URI imageUriForDecoding;
-			if (imageLoadingInfo.options.isCacheOnDisc()) {
+			// New version of revalidated image replaces the old one on disc
+			if (imageLoadingInfo.options.isCacheOnDisc() || modifiedImageResponse != null) {
 				if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_CACHE_IMAGE_ON_DISC, imageLoadingInfo.memoryCacheKey));
 
-				saveImageOnDisc(imageFile);
-				configuration.discCache.put(imageLoadingInfo.uri, imageFile);
-				imageUriForDecoding = imageFile.toURI();
+				cacheImageOnDisc(imageFile);
+				bitmap = decodeImageFromDisc(imageFile);
 			} else {
-				imageUriForDecoding = new URI(imageLoadingInfo.uri);
+				configuration.stats.onNetworkLoad();
+				bitmap = decodeImage(new URI(imageLoadingInfo.uri));
 			}
-
-			bitmap = decodeImage(imageUriForDecoding);
 			if (bitmap == null) {
 				fireImageLoadingFailedEvent(FailReason.IO_ERROR);
 			}
 		} catch (IOException e) {
 			Log.e(ImageLoader.TAG, e.getMessage(), e);
 			fireImageLoadingFailedEvent(FailReason.IO_ERROR);
-			if (imageFile.exists()) {
+			// Interrupted task (i.e. while waiting for memory budget) leaves cached image file as is. Socket timeout is
+			// InterruptedIOException too, but it's an I/O error like others.
+			boolean interrupted = e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException);
+			if (!interrupted && imageFile.exists()) {
 				imageFile.delete();
 			}
 		} catch (OutOfMemoryError e) {
@@ -141,85 +464,493 @@ final class LoadAndDisplayImageTask implements Runnable {
 		return bitmap;
 	}
 
+	/** Caches image on disc without decoding (if it isn't cached yet) */
+	private void tryCacheImageOnDisc() {
+		File imageFile = configuration.discCache.get(imageLoadingInfo.uri);
+		if (!imageFile.exists()) {
+			if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_CACHE_IMAGE_ON_DISC, imageLoadingInfo.memoryCacheKey));
+
+			try {
+				cacheImageOnDisc(imageFile);
+			} catch (IOException e) {
+				Log.e(ImageLoader.TAG, e.getMessage(), e);
+				fireImageLoadingFailedEvent(FailReason.IO_ERROR);
+				if (imageFile.exists()) {
+					imageFile.delete();
+				}
+				return;
+			} catch (Throwable e) {
+				Log.e(ImageLoader.TAG, e.getMessage(), e);
+				fireImageLoadingFailedEvent(FailReason.UNKNOWN);
+				return;
+			}
+		}
+		finish();
+	}
+
+	/** Returns <b>true</b> - if image is cached on disc and it's expired (it must be revalidated before using) */
+	private boolean isImageOnDiscExpired() {
+		DiscCacheAware discCache = configuration.discCache;
+		return discCache instanceof RevalidatedDiscCache && ((RevalidatedDiscCache) discCache).isExpired(imageLoadingInfo.uri);
+	}
+
+	/**
+	 * Checks whether image from disc cache can be used. Expired image is revalidated by conditional request: it's
+	 * refreshed if it wasn't modified on server, otherwise it's deleted and the body of the same response is
+	 * {@linkplain #modifiedImageResponse cached on disc} then. If image {@linkplain HttpStatusException#isImageGone()
+	 * was deleted from server} then expired image is deleted too. If server is unreachable or responds with other error
+	 * status (e.g. it's overloaded) then expired image is used.
+	 * 
+	 * @return <b>true</b> - if cached image can be used
+	 */
+	private boolean checkImageOnDiscIsActual(File imageFile) throws URISyntaxException {
+		if (!(configuration.discCache instanceof RevalidatedDiscCache)) return true;
+
+		RevalidatedDiscCache discCache = (RevalidatedDiscCache) configuration.discCache;
+		String uri = imageLoadingInfo.uri;
+		if (!discCache.isExpired(uri)) return true;
+
+		ImageValidators validators = discCache.getValidators(uri);
+		if (validators != null) {
+			if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_REVALIDATE_IMAGE_ON_DISC, imageLoadingInfo.memoryCacheKey));
+
+			try {
+				ImageResponse response = configuration.downloader.getResponse(new URI(uri), validators);
+				if (response.isNotModified()) {
+					if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_IMAGE_NOT_MODIFIED, imageLoadingInfo.memoryCacheKey));
+					discCache.refresh(uri);
+					return true;
+				}
+				// Image was modified, new version is read from this response
+				modifiedImageResponse = response;
+			} catch (HttpStatusException e) {
+				if (!e.isImageGone()) {
+					Log.w(ImageLoader.TAG, String.format(WARNING_REVALIDATION_FAILED, uri), e);
+					return true;
+				}
+				Log.w(ImageLoader.TAG, String.format(WARNING_IMAGE_NOT_AVAILABLE, uri, e.getStatusCode()));
+			} catch (IOException e) {
+				Log.w(ImageLoader.TAG, String.format(WARNING_REVALIDATION_FAILED, uri), e);
+				return true;
+			}
+		}
+		imageFile.delete();
+		return false;
+	}
+
+	/**
+	 * Saves image on disc and puts it into disc cache (with validators if they are known). {@linkplain EditableDiscCache
+	 * Editable disc cache} is notified when saving starts and when it fails.
+	 */
+	private void cacheImageOnDisc(File imageFile) throws IOException, URISyntaxException {
+		EditableDiscCache editableDiscCache = null;
+		if (configuration.discCache instanceof EditableDiscCache) {
+			editableDiscCache = (EditableDiscCache) configuration.discCache;
+			editableDiscCache.edit(imageLoadingInfo.uri);
+		}
+		boolean saved = false;
+		try {
+			saveImageOnDisc(imageFile);
+			saved = true;
+		} finally {
+			if (!saved && editableDiscCache != null) {
+				editableDiscCache.abort(imageLoadingInfo.uri);
+			}
+			releaseModifiedImageResponse();
+		}
+		if (downloadedImageValidators != null && configuration.discCache instanceof RevalidatedDiscCache) {
+			((RevalidatedDiscCache) configuration.discCache).put(imageLoadingInfo.uri, imageFile, downloadedImageValidators);
+		} else {
+			configuration.discCache.put(imageLoadingInfo.uri, imageFile);
+		}
+	}
+
+	/**
+	 * Decodes image from disc cache file. If {@linkplain EncodedMemoryCache encoded memory cache} is enabled then small
+	 * file is read into memory entirely, cached there and decoded from memory.
+	 */
+	private Bitmap decodeImageFromDisc(File imageFile) throws IOException {
+		EncodedMemoryCache encodedMemoryCache = configuration.encodedMemoryCache;
+		if (encodedMemoryCache != null && imageFile.length() <= encodedMemoryCache.getMaxEntrySize()) {
+			byte[] encodedImage = readFile(imageFile);
+			encodedMemoryCache.put(imageLoadingInfo.uri, encodedImage);
+			return decodeImage(new ImageDecoder(encodedImage, configuration.decodeMemoryBudget));
+		}
+		return decodeImage(imageFile.toURI());
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		byte[] bytes = new byte[(int) file.length()];
+		DataInputStream is = new DataInputStream(new FileInputStream(file));
+		try {
+			is.readFully(bytes);
+		} finally {
+			is.close();
+		}
+		return bytes;
+	}
+
 	private Bitmap decodeImage(URI imageUri) throws IOException {
+		return decodeImage(new ImageDecoder(imageUri, configuration.downloader, configuration.decodeMemoryBudget));
+	}
+
+	private Bitmap decodeImage(ImageDecoder decoder) throws IOException {
 		Bitmap bmp = null;
 
+		long startTime = SystemClock.uptimeMillis();
 		if (configuration.handleOutOfMemory) {
-			bmp = decodeWithOOMHandling(imageUri);
+			bmp = decodeWithOOMHandling(decoder);
 		} else {
-			ImageDecoder decoder = new ImageDecoder(imageUri, configuration.downloader);
-			bmp = decoder.decode(imageLoadingInfo.targetSize, imageLoadingInfo.options.getImageScaleType(), imageLoadingInfo.imageView.getScaleType());
+			DisplayImageOptions options = imageLoadingInfo.options;
+			bmp = decoder.decode(imageLoadingInfo.targetSize, options.getImageScaleType(), getViewScaleType(), options.getImageQuality(), options.getBitmapConfig());
+		}
+		configuration.stats.onDecode(SystemClock.uptimeMillis() - startTime);
+		if (bmp != null) {
+			bitmapDecoder = decoder;
 		}
 		return bmp;
 	}
 
-	private Bitmap decodeWithOOMHandling(URI imageUri) throws IOException {
-		Bitmap result = null;
-		ImageDecoder decoder = new ImageDecoder(imageUri, configuration.downloader);
-		for (int attempt = 1; attempt <= ATTEMPT_COUNT_TO_DECODE_BITMAP; attempt++) {
+	/**
+	 * Memory for decoding is reserved from {@linkplain ImageLoaderConfiguration#decodeMemoryBudget memory budget}, so
+	 * {@link OutOfMemoryError} means budget is too optimistic (i.e. application holds a lot of memory). In this case
+	 * image is decoded again with halved target size, without waiting for GC.
+	 */
+	private Bitmap decodeWithOOMHandling(ImageDecoder decoder) throws IOException {
+		DisplayImageOptions options = imageLoadingInfo.options;
+		ImageSize targetSize = imageLoadingInfo.targetSize;
+		for (int attempt = 1;; attempt++) {
 			try {
-				result = decoder.decode(imageLoadingInfo.targetSize, imageLoadingInfo.options.getImageScaleType(), imageLoadingInfo.imageView.getScaleType());
+				return decoder.decode(targetSize, options.getImageScaleType(), getViewScaleType(), options.getImageQuality(), options.getBitmapConfig());
 			} catch (OutOfMemoryError e) {
-				Log.e(ImageLoader.TAG, e.getMessage(), e);
+				if (attempt >= ATTEMPT_COUNT_TO_DECODE_BITMAP) throw e;
+				configuration.stats.onOutOfMemoryRetry();
 
-				switch (attempt) {
-					case 1:
-						System.gc();
-						break;
-					case 2:
-						configuration.memoryCache.clear();
-						System.gc();
-						break;
-					case 3:
-						throw e;
-				}
-				// Wait some time while GC is working
-				SystemClock.sleep(attempt * 1000);
-				continue;
+				targetSize = new ImageSize(Math.max(targetSize.getWidth() / 2, 1), Math.max(targetSize.getHeight() / 2, 1));
+				Log.w(ImageLoader.TAG, String.format(WARNING_DECODE_SMALLER_IMAGE, imageLoadingInfo.memoryCacheKey, targetSize));
 			}
-			break;
 		}
-		return result;
 	}
 
+	/** Returns scale type of ImageView. Prefetched image is decoded as for {@link ScaleType#CENTER_CROP}. */
+	private ScaleType getViewScaleType() {
+		return imageLoadingInfo.imageView != null ? imageLoadingInfo.imageView.getScaleType() : ScaleType.CENTER_CROP;
+	}
+
+	/**
+	 * Downloads image once into temporary file (image bounds are decoded on the fly) in
+	 * {@linkplain #getPartialDir(File) directory of temporary files}. If image exceeds
+	 * {@linkplain ImageLoaderConfiguration.Builder#discCacheExtraOptions(int, int, android.graphics.Bitmap.CompressFormat, int)
+	 * maximum size for disc cache} then it's transcoded from the temporary file. Result is renamed to target file, so
+	 * target file never contains partially written image.<br />
+	 * If downloading fails then partially downloaded file is kept with validators of image, and the next attempt to
+	 * cache the image resumes downloading (if server supports range requests and image wasn't modified meanwhile).
+	 */
 	private void saveImageOnDisc(File targetFile) throws IOException, URISyntaxException {
-		int width = configuration.maxImageWidthForDiscCache;
-		int height = configuration.maxImageHeightForDiscCache;
-		if (width > 0 || height > 0) {
-			// Download, decode, compress and save image
-			ImageSize targetImageSize = new ImageSize(width, height);
-			ImageDecoder decoder = new ImageDecoder(new URI(imageLoadingInfo.uri), configuration.downloader);
-			Bitmap bmp = decoder.decode(targetImageSize, ImageScaleType.EXACT);
-
-			OutputStream os = new BufferedOutputStream(new FileOutputStream(targetFile));
-			boolean compressedSuccessfully = bmp.compress(configuration.imageCompressFormatForDiscCache, configuration.imageQualityForDiscCache, os);
-			if (compressedSuccessfully) {
-				bmp.recycle();
-				return;
+		boolean waitedForAnotherTask = lockFile(targetFile);
+		try {
+			if (waitedForAnotherTask && targetFile.exists()) {
+				return; // Image was cached by another task
+			}
+
+			File partialDir = getPartialDir(targetFile.getParentFile());
+			File downloadedFile = new File(partialDir, targetFile.getName() + DOWNLOADED_FILE_SUFFIX);
+			Options imageBounds = downloadImage(downloadedFile);
+
+			File transcodedFile = new File(partialDir, targetFile.getName() + TRANSCODED_FILE_SUFFIX);
+			try {
+				File resultFile = downloadedFile;
+				int width = configuration.maxImageWidthForDiscCache;
+				int height = configuration.maxImageHeightForDiscCache;
+				if ((width > 0 && imageBounds.outWidth > width) || (height > 0 && imageBounds.outHeight > height)) {
+					if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_TRANSCODE_IMAGE_FOR_DISC_CACHE, imageLoadingInfo.memoryCacheKey));
+
+					ImageSize targetImageSize = new ImageSize(width > 0 ? width : Integer.MAX_VALUE, height > 0 ? height : Integer.MAX_VALUE);
+					if (transcodeImage(downloadedFile, transcodedFile, targetImageSize)) {
+						resultFile = transcodedFile;
+					}
+					// If compression failed then original image is saved
+				}
+				renameFile(resultFile, targetFile);
+			} finally {
+				// Delete temporary files which weren't renamed
+				downloadedFile.delete();
+				transcodedFile.delete();
+				getValidatorsFile(downloadedFile).delete();
 			}
+		} finally {
+			unlockFile(targetFile);
+		}
+	}
+
+	/**
+	 * Downloads image into file. If file contains part of image already then downloading is resumed. If connection is
+	 * broken after some bytes were downloaded then downloading is resumed up to {@value #DOWNLOAD_ATTEMPT_COUNT} times.
+	 * Network load is counted here, so image which was cached by another task meanwhile isn't counted.
+	 * 
+	 * @return Decoding options with image bounds (<b>outWidth</b> and <b>outHeight</b> are -1 if bounds can't be
+	 *         decoded)
+	 */
+	private Options downloadImage(File targetFile) throws IOException, URISyntaxException {
+		URI imageUri = new URI(imageLoadingInfo.uri);
+		if (modifiedImageResponse != null) {
+			targetFile.delete(); // Partially downloaded file belongs to the old version of image
+		}
+		configuration.stats.onNetworkLoad();
+		for (int attempt = 1;; attempt++) {
+			long downloadedLength = targetFile.length();
+			try {
+				return downloadImage(imageUri, targetFile, downloadedLength);
+			} catch (IOException e) {
+				// Retry only if connection was broken after some progress
+				if (attempt >= DOWNLOAD_ATTEMPT_COUNT || targetFile.length() <= downloadedLength) {
+					throw e;
+				}
+				Log.w(ImageLoader.TAG, String.format(WARNING_DOWNLOAD_INTERRUPTED, imageLoadingInfo.uri, targetFile.length()), e);
+			}
+		}
+	}
+
+	/**
+	 * Downloads image into file starting from <b>downloadedLength</b> byte. Range request is conditional on validators
+	 * which were stored with partially downloaded file. If image can't be retrieved partially or it was modified then
+	 * whole image is downloaded again (or it's read from {@linkplain #modifiedImageResponse revalidation response}).
+	 * Image bounds are decoded from the downloaded bytes.
+	 */
+	private Options downloadImage(URI imageUri, File targetFile, long downloadedLength) throws IOException {
+		File validatorsFile = getValidatorsFile(targetFile);
+		ImageResponse response = modifiedImageResponse;
+		modifiedImageResponse = null;
+		if (response == null && downloadedLength > 0) {
+			response = configuration.downloader.getResponse(imageUri, downloadedLength, readPartialImageValidators(validatorsFile));
 		}
+		if (response == null) {
+			response = configuration.downloader.getResponse(imageUri, null);
+		}
+		boolean resumed = response.getOffset() > 0;
+		if (resumed) {
+			if (configuration.loggingEnabled) Log.i(ImageLoader.TAG, String.format(LOG_RESUME_DOWNLOADING, downloadedLength, imageLoadingInfo.memoryCacheKey));
+		} else {
+			// Validators are stored before image bytes, so partial file is never resumed with unknown validators
+			writePartialImageValidators(validatorsFile, response.getValidators());
+		}
+		downloadedImageValidators = response.getValidators();
+		InputStream is = response.getStream();
 
-		// If previous compression wasn't needed or failed
-		// Download and save original image
-		InputStream is = configuration.downloader.getStream(new URI(imageLoadingInfo.uri));
+		Options options = new Options();
+		options.inJustDecodeBounds = true;
 		try {
-			OutputStream os = new BufferedOutputStream(new FileOutputStream(targetFile));
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(targetFile, resumed), BUFFER_SIZE);
 			try {
+				if (!resumed) {
+					// Decoder reads image header through the tee, read bytes are written to file too
+					BitmapFactory.decodeStream(new TeeInputStream(is, os), null, options);
+				}
+				// Write the rest of image
 				FileUtils.copyStream(is, os);
 			} finally {
 				os.close();
+				configuration.stats.onDownload(targetFile.length() - (resumed ? downloadedLength : 0));
 			}
 		} finally {
 			is.close();
 		}
+		if (resumed) {
+			// Image header was downloaded before
+			BitmapFactory.decodeFile(targetFile.getAbsolutePath(), options);
+		}
+		return options;
+	}
+
+	private static File getValidatorsFile(File partialFile) {
+		return new File(partialFile.getPath() + VALIDATORS_FILE_SUFFIX);
+	}
+
+	/** Returns validators of partially downloaded image or <b>null</b> if they are unknown */
+	private static ImageValidators readPartialImageValidators(File validatorsFile) {
+		if (!validatorsFile.exists()) return null;
+		try {
+			return ImageValidators.readFrom(validatorsFile);
+		} catch (IOException e) {
+			Log.w(ImageLoader.TAG, String.format(WARNING_PARTIAL_IMAGE_VALIDATORS, validatorsFile), e);
+			return null;
+		}
+	}
+
+	private static void writePartialImageValidators(File validatorsFile, ImageValidators validators) {
+		if (validators == null || validators.isEmpty()) {
+			validatorsFile.delete();
+			return;
+		}
+		try {
+			validators.writeTo(validatorsFile);
+		} catch (IOException e) {
+			Log.w(ImageLoader.TAG, String.format(WARNING_PARTIAL_IMAGE_VALIDATORS, validatorsFile), e);
+			validatorsFile.delete();
+		}
+	}
+
+	/** Closes body of revalidation response if it wasn't cached (i.e. image was cached by another task meanwhile) */
+	private void releaseModifiedImageResponse() {
+		if (modifiedImageResponse == null) return;
+		try {
+			modifiedImageResponse.getStream().close();
+		} catch (IOException e) {
+			Log.w(ImageLoader.TAG, e.getMessage(), e);
+		}
+		modifiedImageResponse = null;
+	}
+
+	/**
+	 * Returns directory of temporary files for cache directory. Temporary files which were abandoned long ago (e.g.
+	 * partial downloads of images which aren't requested anymore) are deleted on the first call in process.
+	 */
+	private static File getPartialDir(File cacheDir) throws IOException {
+		File partialDir = new File(cacheDir, PARTIAL_DIR_NAME);
+		synchronized (cleanedPartialDirs) {
+			if (cleanedPartialDirs.add(partialDir.getPath())) {
+				deleteStaleFiles(partialDir);
+			}
+		}
+		if (!partialDir.isDirectory() && !partialDir.mkdirs()) {
+			throw new IOException(String.format(ERROR_CREATE_DIR, partialDir));
+		}
+		return partialDir;
+	}
+
+	private static void deleteStaleFiles(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null) return;
+
+		long currentTime = System.currentTimeMillis();
+		for (File file : files) {
+			if (currentTime - file.lastModified() > PARTIAL_FILE_MAX_AGE) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Prevents simultaneous caching of the same file by several tasks (e.g. for different target sizes)
+	 * 
+	 * @return <b>true</b> - if file was locked by another task and current task waited for it
+	 */
+	private static boolean lockFile(File file) throws InterruptedIOException {
+		String path = file.getPath();
+		boolean waited = false;
+		synchronized (lockedFiles) {
+			while (lockedFiles.contains(path)) {
+				waited = true;
+				try {
+					lockedFiles.wait();
+				} catch (InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+			}
+			lockedFiles.add(path);
+		}
+		return waited;
+	}
+
+	private static void unlockFile(File file) {
+		synchronized (lockedFiles) {
+			lockedFiles.remove(file.getPath());
+			lockedFiles.notifyAll();
+		}
+	}
+
+	/** @return <b>true</b> - if image was decoded and compressed into target file successfully */
+	private boolean transcodeImage(File sourceFile, File targetFile, ImageSize targetImageSize) throws IOException {
+		ImageDecoder decoder = new ImageDecoder(sourceFile.toURI(), configuration.downloader, configuration.decodeMemoryBudget);
+		Bitmap bmp = decoder.decode(targetImageSize, ImageScaleType.EXACT);
+		if (bmp == null) return false;
+
+		boolean compressedSuccessfully;
+		try {
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(targetFile), BUFFER_SIZE);
+			try {
+				compressedSuccessfully = bmp.compress(configuration.imageCompressFormatForDiscCache, configuration.imageQualityForDiscCache, os);
+			} finally {
+				os.close();
+			}
+		} finally {
+			bmp.recycle();
+			decoder.releaseMemory();
+		}
+		if (!compressedSuccessfully) {
+			targetFile.delete();
+		}
+		return compressedSuccessfully;
+	}
+
+	private static void renameFile(File sourceFile, File targetFile) throws IOException {
+		if (!sourceFile.renameTo(targetFile)) {
+			// Some file systems don't replace existing file on rename
+			targetFile.delete();
+			if (!sourceFile.renameTo(targetFile)) {
+				throw new IOException(String.format(ERROR_RENAME_FILE, sourceFile, targetFile));
+			}
+		}
 	}
 
 	private void fireImageLoadingFailedEvent(final FailReason failReason) {
-		handler.post(new Runnable() {
+		for (final ImageLoadingInfo info : finish()) {
+			configuration.displayQueue.post(new Runnable() {
+				@Override
+				public void run() {
+					info.listener.onLoadingFailed(failReason);
+				}
+			});
+		}
+	}
+
+	private void fireCancelEvent(final ImageLoadingInfo info) {
+		configuration.stats.onCancel();
+		configuration.displayQueue.post(new Runnable() {
 			@Override
 			public void run() {
-				imageLoadingInfo.listener.onLoadingFailed(failReason);
+				info.listener.onLoadingCancelled();
 			}
 		});
 	}
+
+	/** Input stream which writes all read bytes to output stream */
+	private static class TeeInputStream extends InputStream {
+
+		private final InputStream in;
+		private final OutputStream out;
+
+		TeeInputStream(InputStream in, OutputStream out) {
+			this.in = in;
+			this.out = out;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = in.read();
+			if (b != -1) {
+				out.write(b);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int count) throws IOException {
+			int readCount = in.read(buffer, offset, count);
+			if (readCount > 0) {
+				out.write(buffer, offset, readCount);
+			}
+			return readCount;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return in.available();
+		}
+
+		@Override
+		public void close() {
+			// Streams are closed by owner
+		}
+	}
 }
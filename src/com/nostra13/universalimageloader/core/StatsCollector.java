@@ -0,0 +1,151 @@
+package com.nostra13.universalimageloader.core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.nostra13.universalimageloader.cache.disc.DiscCacheAware;
+import com.nostra13.universalimageloader.cache.disc.impl.JournaledDiscCache;
+import com.nostra13.universalimageloader.cache.memory.MemoryCacheAware;
+import com.nostra13.universalimageloader.cache.memory.TrimmableMemoryCache;
+import com.nostra13.universalimageloader.core.assist.ImageLoaderStatsListener;
+
+/**
+ * Collects {@linkplain ImageLoaderStats statistics} of {@link ImageLoader} work. Counters are lock-free so they can be
+ * updated from UI thread and from display image threads. {@linkplain ImageLoaderStatsListener Listener} is notified on
+ * UI thread not more often than once per {@value #LISTENER_UPDATE_INTERVAL} ms.
+ * 
+ * @see ImageLoaderStats
+ */
+final class StatsCollector {
+
+	/** {@value} */
+	private static final long LISTENER_UPDATE_INTERVAL = 1000; // ms
+
+	private final MemoryCacheAware<String, Bitmap> memoryCache;
+	private final DiscCacheAware discCache;
+
+	private final AtomicLong memoryCacheHits = new AtomicLong();
+	private final AtomicLong memoryCacheMisses = new AtomicLong();
+	private final AtomicLong encodedMemoryCacheHits = new AtomicLong();
+	private final AtomicLong discCacheHits = new AtomicLong();
+	private final AtomicLong networkLoads = new AtomicLong();
+	private final AtomicLong downloadedBytes = new AtomicLong();
+	private final AtomicLong cancellations = new AtomicLong();
+	private final AtomicLong outOfMemoryRetries = new AtomicLong();
+	private final AtomicLongArray decodeTimeHistogram = new AtomicLongArray(ImageLoaderStats.HISTOGRAM_BUCKET_COUNT);
+	private final AtomicLongArray queueWaitTimeHistogram = new AtomicLongArray(ImageLoaderStats.HISTOGRAM_BUCKET_COUNT);
+
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final AtomicBoolean listenerUpdateScheduled = new AtomicBoolean();
+	private volatile ImageLoaderStatsListener listener;
+
+	private final Runnable listenerUpdate = new Runnable() {
+		@Override
+		public void run() {
+			listenerUpdateScheduled.set(false);
+			ImageLoaderStatsListener currentListener = listener;
+			if (currentListener != null) {
+				currentListener.onStatsUpdated(getStats());
+			}
+		}
+	};
+
+	StatsCollector(MemoryCacheAware<String, Bitmap> memoryCache, DiscCacheAware discCache) {
+		this.memoryCache = memoryCache;
+		this.discCache = discCache;
+	}
+
+	void setListener(ImageLoaderStatsListener listener) {
+		this.listener = listener;
+	}
+
+	void onMemoryCacheHit() {
+		increment(memoryCacheHits);
+	}
+
+	void onMemoryCacheMiss() {
+		increment(memoryCacheMisses);
+	}
+
+	void onEncodedMemoryCacheHit() {
+		increment(encodedMemoryCacheHits);
+	}
+
+	void onDiscCacheHit() {
+		increment(discCacheHits);
+	}
+
+	void onNetworkLoad() {
+		increment(networkLoads);
+	}
+
+	void onDownload(long byteCount) {
+		downloadedBytes.addAndGet(byteCount);
+		scheduleListenerUpdate();
+	}
+
+	void onCancel() {
+		increment(cancellations);
+	}
+
+	void onOutOfMemoryRetry() {
+		increment(outOfMemoryRetries);
+	}
+
+	void onDecode(long decodeTime) {
+		decodeTimeHistogram.incrementAndGet(getHistogramBucket(decodeTime));
+		scheduleListenerUpdate();
+	}
+
+	void onTaskStart(long queueWaitTime) {
+		queueWaitTimeHistogram.incrementAndGet(getHistogramBucket(queueWaitTime));
+		scheduleListenerUpdate();
+	}
+
+	ImageLoaderStats getStats() {
+		long memoryCacheSize = ImageLoaderStats.UNKNOWN_SIZE;
+		if (memoryCache instanceof TrimmableMemoryCache) {
+			memoryCacheSize = ((TrimmableMemoryCache) memoryCache).getSize();
+		}
+		long discCacheSize = ImageLoaderStats.UNKNOWN_SIZE;
+		if (discCache instanceof JournaledDiscCache) {
+			discCacheSize = ((JournaledDiscCache) discCache).getCacheSize();
+		}
+		return new ImageLoaderStats(memoryCacheHits.get(), memoryCacheMisses.get(), encodedMemoryCacheHits.get(), discCacheHits.get(),
+				networkLoads.get(), downloadedBytes.get(), cancellations.get(), outOfMemoryRetries.get(), toArray(decodeTimeHistogram),
+				toArray(queueWaitTimeHistogram), memoryCacheSize, discCacheSize);
+	}
+
+	private void increment(AtomicLong counter) {
+		counter.incrementAndGet();
+		scheduleListenerUpdate();
+	}
+
+	private void scheduleListenerUpdate() {
+		if (listener != null && listenerUpdateScheduled.compareAndSet(false, true)) {
+			handler.postDelayed(listenerUpdate, LISTENER_UPDATE_INTERVAL);
+		}
+	}
+
+	/** Returns index of histogram bucket for duration (in milliseconds) */
+	private static int getHistogramBucket(long duration) {
+		int bucket = 0;
+		while (bucket < ImageLoaderStats.HISTOGRAM_BUCKET_COUNT - 1 && duration >= ImageLoaderStats.getHistogramBucketBound(bucket)) {
+			bucket++;
+		}
+		return bucket;
+	}
+
+	private static long[] toArray(AtomicLongArray histogram) {
+		long[] result = new long[histogram.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = histogram.get(i);
+		}
+		return result;
+	}
+}
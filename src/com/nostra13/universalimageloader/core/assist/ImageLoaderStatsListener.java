@@ -0,0 +1,17 @@
+package com.nostra13.universalimageloader.core.assist;
+
+import com.nostra13.universalimageloader.core.ImageLoaderStats;
+
+/**
+ * Listener for {@link com.nostra13.universalimageloader.core.ImageLoader ImageLoader} statistics
+ * 
+ * @see ImageLoaderStats
+ */
+public interface ImageLoaderStatsListener {
+
+	/**
+	 * Is called on UI thread with fresh statistics snapshot. Is called not more often than once per second and only if
+	 * statistics was changed.
+	 */
+	void onStatsUpdated(ImageLoaderStats stats);
+}
@@ -0,0 +1,24 @@
+package com.nostra13.universalimageloader.core.assist;
+
+/**
+ * Quality tier of decoded image. Defines {@linkplain android.graphics.Bitmap.Config bitmap config} (if it isn't set
+ * explicitly) and decoding hints.
+ */
+public enum ImageQuality {
+	/**
+	 * Opaque images (JPEG) are decoded as {@link android.graphics.Bitmap.Config#RGB_565 RGB_565} (2 bytes per pixel)
+	 * with dithering. Bitmaps are <b>purgeable</b>: system can free their pixels under memory pressure, then they are
+	 * decoded again on drawing (on UI thread).<br />
+	 * Use it for thumbnails of big lists if memory economy is critically important.
+	 */
+	LOW,
+	/**
+	 * Opaque images (JPEG) are decoded as {@link android.graphics.Bitmap.Config#RGB_565 RGB_565} (2 bytes per pixel)
+	 * with dithering. Images with transparency are decoded as {@link android.graphics.Bitmap.Config#ARGB_8888 ARGB_8888}
+	 * .<br />
+	 * Good choice for photos and thumbnails: memory cache holds twice more images.
+	 */
+	MEDIUM,
+	/** All images are decoded as {@link android.graphics.Bitmap.Config#ARGB_8888 ARGB_8888} (4 bytes per pixel) */
+	HIGH
+}
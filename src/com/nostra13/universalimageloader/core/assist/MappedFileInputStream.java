@@ -0,0 +1,106 @@
+package com.nostra13.universalimageloader.core.assist;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.InvalidMarkException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stream of file which is {@linkplain FileChannel#map(FileChannel.MapMode, long, long) mapped into memory}. Bytes are
+ * copied from mapping into reader's buffer without <b>read()</b> system call per buffer. Mark/reset is supported
+ * without read limit, so image header and pixels are read from the same mapping.<br />
+ * File is mapped on stream creation and its channel is closed immediately. {@link #close()} doesn't unmap file: mapping
+ * stays valid (and holds address space) until buffer is garbage collected, so this stream is meant for small files.
+ * Empty file is mapped as empty stream.
+ */
+public class MappedFileInputStream extends InputStream {
+
+	private ByteBuffer buffer;
+
+	/**
+	 * @param file
+	 *            File to read. Its size must not exceed {@link Integer#MAX_VALUE}.
+	 * @throws IOException
+	 *             if file can't be opened or mapped
+	 */
+	public MappedFileInputStream(File file) throws IOException {
+		FileInputStream fileStream = new FileInputStream(file);
+		try {
+			FileChannel channel = fileStream.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			fileStream.close();
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		ByteBuffer buffer = getBuffer();
+		return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		ByteBuffer buffer = getBuffer();
+		if (len == 0) return 0;
+		if (!buffer.hasRemaining()) return -1;
+
+		int count = Math.min(len, buffer.remaining());
+		buffer.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		ByteBuffer buffer = getBuffer();
+		if (n <= 0) return 0;
+
+		int count = (int) Math.min(n, buffer.remaining());
+		buffer.position(buffer.position() + count);
+		return count;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return getBuffer().remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	/** Marks current position. Read limit is ignored: whole file is available for reset. */
+	@Override
+	public synchronized void mark(int readlimit) {
+		if (buffer != null) {
+			buffer.mark();
+		}
+	}
+
+	/** Rewinds stream to marked position or to the beginning of file if stream wasn't marked */
+	@Override
+	public synchronized void reset() throws IOException {
+		ByteBuffer buffer = getBuffer();
+		try {
+			buffer.reset();
+		} catch (InvalidMarkException e) {
+			buffer.rewind();
+		}
+	}
+
+	/** Releases reference to mapping so it can be unmapped by GC */
+	@Override
+	public void close() {
+		buffer = null;
+	}
+
+	private ByteBuffer getBuffer() throws IOException {
+		ByteBuffer buffer = this.buffer;
+		if (buffer == null) throw new IOException("Stream is closed");
+		return buffer;
+	}
+}
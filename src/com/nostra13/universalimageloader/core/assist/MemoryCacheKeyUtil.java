@@ -2,6 +2,10 @@ package com.nostra13.universalimageloader.core.assist;
 
 import java.util.Comparator;
 
+import android.graphics.Bitmap;
+
+import com.nostra13.universalimageloader.core.process.BitmapProcessor;
+
 /**
  * Utility for generating of keys for memory cache and key comparing
  * 
@@ -9,20 +13,58 @@ import java.util.Comparator;
  */
 public final class MemoryCacheKeyUtil {
 
-	private static final String URI_AND_SIZE_SEPARATOR = "_";
-	private static final String MEMORY_CACHE_KEY_FORMAT = "%s" + URI_AND_SIZE_SEPARATOR + "%sx%s";
+	private static final char URI_AND_SIZE_SEPARATOR = '_';
+	private static final char URI_AND_QUALITY_SEPARATOR = '#';
+	private static final char QUALITY_AND_CONFIG_SEPARATOR = ':';
+	private static final char URI_AND_PROCESSOR_SEPARATOR = '|';
+	private static final char WIDTH_AND_HEIGHT_SEPARATOR = 'x';
+	/** Enough for separators and two 4-digit sizes */
+	private static final int MAX_SIZE_SUFFIX_LENGTH = 10;
+
+	/**
+	 * Generates image key "[imageUri]#[quality]:[bitmapConfig]|[processorKey]" (config and processor key are omitted if
+	 * they aren't set). Image key identifies image in memory cache regardless of its size. Quality and preferred config
+	 * define config of decoded bitmap, so bitmaps decoded with different configs are cached under different keys.
+	 */
+	public static String generateImageKey(String imageUri, ImageQuality quality, Bitmap.Config bitmapConfig, BitmapProcessor processor) {
+		StringBuilder key = new StringBuilder(imageUri);
+		key.append(URI_AND_QUALITY_SEPARATOR).append(quality);
+		if (bitmapConfig != null) {
+			key.append(QUALITY_AND_CONFIG_SEPARATOR).append(bitmapConfig);
+		}
+		if (processor != null) {
+			key.append(URI_AND_PROCESSOR_SEPARATOR).append(processor.getKey());
+		}
+		return key.toString();
+	}
 
+	/**
+	 * Generates key "[imageKey]_[width]x[height]" (see
+	 * {@link #generateImageKey(String, ImageQuality, android.graphics.Bitmap.Config, BitmapProcessor)})
+	 */
 	public static String generateKey(String imageUri, ImageSize targetSize) {
-		return String.format(MEMORY_CACHE_KEY_FORMAT, imageUri, targetSize.getWidth(), targetSize.getHeight());
+		StringBuilder key = new StringBuilder(imageUri.length() + MAX_SIZE_SUFFIX_LENGTH);
+		key.append(imageUri).append(URI_AND_SIZE_SEPARATOR);
+		key.append(targetSize.getWidth()).append(WIDTH_AND_HEIGHT_SEPARATOR).append(targetSize.getHeight());
+		return key.toString();
 	}
 
 	public static Comparator<String> createFuzzyKeyComparator() {
 		return new Comparator<String>() {
 			@Override
 			public int compare(String key1, String key2) {
-				String imageUri1 = key1.substring(0, key1.lastIndexOf(URI_AND_SIZE_SEPARATOR));
-				String imageUri2 = key2.substring(0, key2.lastIndexOf(URI_AND_SIZE_SEPARATOR));
-				return imageUri1.compareTo(imageUri2);
+				// Compare image URIs in place (without substring allocation)
+				int imageUriLength1 = key1.lastIndexOf(URI_AND_SIZE_SEPARATOR);
+				int imageUriLength2 = key2.lastIndexOf(URI_AND_SIZE_SEPARATOR);
+				int minLength = Math.min(imageUriLength1, imageUriLength2);
+				for (int i = 0; i < minLength; i++) {
+					char c1 = key1.charAt(i);
+					char c2 = key2.charAt(i);
+					if (c1 != c2) {
+						return c1 - c2;
+					}
+				}
+				return imageUriLength1 - imageUriLength2;
 			}
 		};
 	}
@@ -0,0 +1,74 @@
+package com.nostra13.universalimageloader.core.assist;
+
+import android.widget.AbsListView;
+import android.widget.AbsListView.OnScrollListener;
+
+import com.nostra13.universalimageloader.core.ImageLoader;
+
+/**
+ * Listener which {@linkplain ImageLoader#pause() pauses} ImageLoader during list scrolling (flinging) and
+ * {@linkplain ImageLoader#resume() resumes} it when scrolling is stopped. So images aren't loaded and decoded for rows
+ * which are only flashed by.<br />
+ * Can be set to any {@link AbsListView} (<b>ListView</b>, <b>GridView</b> or their pull-to-refresh wrappers which
+ * forward scroll events).
+ */
+public class PauseOnScrollListener implements OnScrollListener {
+
+	private final boolean pauseOnScroll;
+	private final boolean pauseOnFling;
+	private final OnScrollListener externalListener;
+
+	/**
+	 * @param pauseOnScroll
+	 *            Whether {@linkplain ImageLoader#pause() pause ImageLoader} during touch scrolling
+	 * @param pauseOnFling
+	 *            Whether {@linkplain ImageLoader#pause() pause ImageLoader} during fling
+	 */
+	public PauseOnScrollListener(boolean pauseOnScroll, boolean pauseOnFling) {
+		this(pauseOnScroll, pauseOnFling, null);
+	}
+
+	/**
+	 * @param pauseOnScroll
+	 *            Whether {@linkplain ImageLoader#pause() pause ImageLoader} during touch scrolling
+	 * @param pauseOnFling
+	 *            Whether {@linkplain ImageLoader#pause() pause ImageLoader} during fling
+	 * @param customListener
+	 *            Your custom {@link OnScrollListener} for {@linkplain AbsListView list view} which also will be get
+	 *            scroll events
+	 */
+	public PauseOnScrollListener(boolean pauseOnScroll, boolean pauseOnFling, OnScrollListener customListener) {
+		this.pauseOnScroll = pauseOnScroll;
+		this.pauseOnFling = pauseOnFling;
+		externalListener = customListener;
+	}
+
+	@Override
+	public void onScrollStateChanged(AbsListView view, int scrollState) {
+		switch (scrollState) {
+			case OnScrollListener.SCROLL_STATE_IDLE:
+				ImageLoader.getInstance().resume();
+				break;
+			case OnScrollListener.SCROLL_STATE_TOUCH_SCROLL:
+				if (pauseOnScroll) {
+					ImageLoader.getInstance().pause();
+				}
+				break;
+			case OnScrollListener.SCROLL_STATE_FLING:
+				if (pauseOnFling) {
+					ImageLoader.getInstance().pause();
+				}
+				break;
+		}
+		if (externalListener != null) {
+			externalListener.onScrollStateChanged(view, scrollState);
+		}
+	}
+
+	@Override
+	public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+		if (externalListener != null) {
+			externalListener.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
+		}
+	}
+}
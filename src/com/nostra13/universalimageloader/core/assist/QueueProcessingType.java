@@ -0,0 +1,15 @@
+package com.nostra13.universalimageloader.core.assist;
+
+/**
+ * Order in which queued display image tasks are processed
+ */
+public enum QueueProcessingType {
+	/** Tasks are processed in order they were added (first in - first out) */
+	FIFO,
+	/**
+	 * The newest task is processed first (last in - first out).<br />
+	 * It's preferable for lists: images for rows which are visible now are loaded before images for rows which were
+	 * scrolled off.
+	 */
+	LIFO
+}
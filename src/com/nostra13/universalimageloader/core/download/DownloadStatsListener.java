@@ -0,0 +1,24 @@
+package com.nostra13.universalimageloader.core.download;
+
+import java.net.URI;
+
+/**
+ * Listener of network requests of {@link HttpClientImageDownloader}. Is called on download thread, so implementation
+ * should be fast and thread-safe.
+ */
+public interface DownloadStatsListener {
+
+	/**
+	 * Is called when image stream is closed (downloaded completely or interrupted)
+	 * 
+	 * @param imageUri
+	 *            Image URI
+	 * @param byteCount
+	 *            Count of bytes read from the network
+	 * @param latency
+	 *            Time from sending of request to receiving of response headers (in milliseconds)
+	 * @param duration
+	 *            Time from sending of request to closing of stream (in milliseconds)
+	 */
+	void onRequestFinished(URI imageUri, long byteCount, long latency, long duration);
+}
@@ -1,29 +1,296 @@
 package com.nostra13.universalimageloader.core.download;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.HttpContext;
 
+import android.os.SystemClock;
+
+import com.nostra13.universalimageloader.core.assist.FlushedInputStream;
+
+/**
+ * Implementation of ImageDownloader which uses {@link HttpClient} for image stream retrieving. Image is streamed
+ * straight from the socket (it isn't buffered in memory entirely), connection is returned to the client's pool when
+ * stream is read up to the end (or almost to the end) and closed, so it can be reused for the next image
+ * (keep-alive).<br />
+ * Pass HttpClient of your application to share its connection pool, or use {@link #HttpClientImageDownloader()} to
+ * share {@linkplain #createHttpClient(String...) tuned pool} between all downloaders.
+ * 
+ * @author Sergey Tarasevich (nostra13[at]gmail[dot]com)
+ * @see DownloadStatsListener
+ */
 public class HttpClientImageDownloader extends ImageDownloader {
 
-	private HttpClient httpClient;
+	/** {@value} */
+	public static final int DEFAULT_HTTP_CONNECT_TIMEOUT = 5 * 1000; // milliseconds
+	/** {@value} */
+	public static final int DEFAULT_HTTP_READ_TIMEOUT = 20 * 1000; // milliseconds
+	/** {@value} */
+	public static final int DEFAULT_MAX_CONNECTIONS = 12;
+	/** {@value} */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 2;
+	/** {@value} */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_BUSY_HOST = 4;
+
+	/** {@value} */
+	private static final long KEEP_ALIVE_DURATION = 30 * 1000; // milliseconds
+	private static final int BUFFER_SIZE = 8 * 1024; // 8 KB
+	/**
+	 * Max count of bytes which are read uselessly on closing of stream which wasn't read up to the end. If the rest of
+	 * response is small then it's read to keep connection alive, otherwise connection is closed.
+	 */
+	private static final int MAX_SKIPPED_BYTE_COUNT = 8 * 1024; // 8 KB
+
+	/** Client with tuned connection pool which is shared by downloaders created by {@link #HttpClientImageDownloader()} */
+	private static HttpClient sharedHttpClient;
+
+	private final HttpClient httpClient;
+	private volatile DownloadStatsListener statsListener;
 
+	/**
+	 * Creates downloader which uses {@linkplain #createHttpClient(String...) tuned connection pool} shared by such
+	 * downloaders
+	 */
+	public HttpClientImageDownloader() {
+		this(getSharedHttpClient());
+	}
+
+	/**
+	 * @param httpClient
+	 *            Client which executes requests. It should use thread-safe connection manager because images are
+	 *            downloaded in several threads.
+	 */
 	public HttpClientImageDownloader(HttpClient httpClient) {
 		this.httpClient = httpClient;
 	}
 
+	/** Sets listener which is notified about bytes and latency of every network request (on download thread) */
+	public void setStatsListener(DownloadStatsListener statsListener) {
+		this.statsListener = statsListener;
+	}
+
 	@Override
 	protected InputStream getStreamFromNetwork(URI imageUri) throws IOException {
+		return getResponseFromNetwork(imageUri, null).getStream();
+	}
+
+	@Override
+	protected ImageResponse getResponseFromNetwork(URI imageUri, ImageValidators validators) throws IOException {
+		long startTime = SystemClock.uptimeMillis();
 		HttpGet httpRequest = new HttpGet(imageUri.toString());
+		if (validators != null) {
+			if (validators.getETag() != null) httpRequest.addHeader(HEADER_IF_NONE_MATCH, validators.getETag());
+			if (validators.getLastModified() != null) httpRequest.addHeader(HEADER_IF_MODIFIED_SINCE, validators.getLastModified());
+		}
 		HttpResponse response = httpClient.execute(httpRequest);
-		HttpEntity entity = response.getEntity();
-		BufferedHttpEntity bufHttpEntity = new BufferedHttpEntity(entity);
-		return bufHttpEntity.getContent();
+		int statusCode = response.getStatusLine().getStatusCode();
+		if (statusCode == HttpStatus.SC_NOT_MODIFIED && validators != null) {
+			// Response has no body, connection is released to the pool
+			HttpEntity entity = response.getEntity();
+			if (entity != null) {
+				entity.consumeContent();
+			}
+			DownloadStatsListener listener = statsListener;
+			if (listener != null) {
+				long duration = SystemClock.uptimeMillis() - startTime;
+				listener.onRequestFinished(imageUri, 0, duration, duration);
+			}
+			return new ImageResponse(null, validators);
+		}
+		if (statusCode != HttpStatus.SC_OK) {
+			httpRequest.abort();
+			throw new HttpStatusException(statusCode, imageUri);
+		}
+		ImageValidators responseValidators = new ImageValidators(getHeaderValue(response, HEADER_ETAG), getHeaderValue(response, HEADER_LAST_MODIFIED));
+		InputStream imageStream = getStreamFromEntity(imageUri, httpRequest, response.getEntity(), startTime);
+		return new ImageResponse(imageStream, responseValidators);
+	}
+
+	@Override
+	protected ImageResponse getResponseFromNetwork(URI imageUri, long offset, ImageValidators validators) throws IOException {
+		long startTime = SystemClock.uptimeMillis();
+		HttpGet httpRequest = new HttpGet(imageUri.toString());
+		httpRequest.addHeader(HEADER_RANGE, String.format(RANGE_FORMAT, offset));
+		httpRequest.addHeader(HEADER_IF_RANGE, getIfRangeValue(validators));
+		HttpResponse response = httpClient.execute(httpRequest);
+		int statusCode = response.getStatusLine().getStatusCode();
+		if (statusCode == HttpStatus.SC_OK) {
+			// Image was modified (or server ignored range), whole image is received
+			ImageValidators responseValidators = new ImageValidators(getHeaderValue(response, HEADER_ETAG), getHeaderValue(response, HEADER_LAST_MODIFIED));
+			return new ImageResponse(getStreamFromEntity(imageUri, httpRequest, response.getEntity(), startTime), responseValidators);
+		}
+		if (statusCode != HttpStatus.SC_PARTIAL_CONTENT || !isContentRangeStartedFrom(getHeaderValue(response, HEADER_CONTENT_RANGE), offset)) {
+			httpRequest.abort();
+			return null;
+		}
+		return new ImageResponse(getStreamFromEntity(imageUri, httpRequest, response.getEntity(), startTime), validators, offset);
+	}
+
+	private InputStream getStreamFromEntity(URI imageUri, HttpGet httpRequest, HttpEntity entity, long startTime) throws IOException {
+		if (entity == null) {
+			httpRequest.abort();
+			throw new HttpStatusException(HttpStatus.SC_NO_CONTENT, imageUri);
+		}
+		long latency = SystemClock.uptimeMillis() - startTime;
+		InputStream entityStream = new ConnectionReleasingInputStream(entity.getContent(), httpRequest, imageUri, startTime, latency);
+		return new FlushedInputStream(new BufferedInputStream(entityStream, BUFFER_SIZE));
+	}
+
+	private static String getHeaderValue(HttpResponse response, String headerName) {
+		Header header = response.getFirstHeader(headerName);
+		return header != null ? header.getValue() : null;
+	}
+
+	/**
+	 * Creates {@link HttpClient} with thread-safe keep-alive connection pool tuned for image loading: up to
+	 * {@value #DEFAULT_MAX_CONNECTIONS} connections, up to {@value #DEFAULT_MAX_CONNECTIONS_PER_BUSY_HOST} connections
+	 * to each of busy hosts and up to {@value #DEFAULT_MAX_CONNECTIONS_PER_HOST} connections to other hosts. Idle
+	 * connections are kept alive for {@value #KEEP_ALIVE_DURATION} ms.
+	 * 
+	 * @param busyHosts
+	 *            Hosts which most of images are loaded from (e.g. image CDN of application)
+	 */
+	public static HttpClient createHttpClient(String... busyHosts) {
+		HttpParams params = new BasicHttpParams();
+		HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+		HttpConnectionParams.setConnectionTimeout(params, DEFAULT_HTTP_CONNECT_TIMEOUT);
+		HttpConnectionParams.setSoTimeout(params, DEFAULT_HTTP_READ_TIMEOUT);
+		HttpConnectionParams.setSocketBufferSize(params, BUFFER_SIZE);
+		HttpConnectionParams.setTcpNoDelay(params, true);
+
+		ConnPerRouteBean connPerRoute = new ConnPerRouteBean(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+		for (String host : busyHosts) {
+			connPerRoute.setMaxForRoute(new HttpRoute(new HttpHost(host)), DEFAULT_MAX_CONNECTIONS_PER_BUSY_HOST);
+		}
+		ConnManagerParams.setMaxTotalConnections(params, DEFAULT_MAX_CONNECTIONS);
+		ConnManagerParams.setMaxConnectionsPerRoute(params, connPerRoute);
+		ConnManagerParams.setTimeout(params, DEFAULT_HTTP_CONNECT_TIMEOUT);
+
+		SchemeRegistry schemeRegistry = new SchemeRegistry();
+		schemeRegistry.register(new Scheme(PROTOCOL_HTTP, PlainSocketFactory.getSocketFactory(), 80));
+		schemeRegistry.register(new Scheme(PROTOCOL_HTTPS, SSLSocketFactory.getSocketFactory(), 443));
+
+		DefaultHttpClient httpClient = new DefaultHttpClient(new ThreadSafeClientConnManager(params, schemeRegistry), params);
+		httpClient.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+			@Override
+			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+				return KEEP_ALIVE_DURATION;
+			}
+		});
+		return httpClient;
+	}
+
+	private static synchronized HttpClient getSharedHttpClient() {
+		if (sharedHttpClient == null) {
+			sharedHttpClient = createHttpClient();
+		}
+		return sharedHttpClient;
+	}
+
+	/**
+	 * Stream of response entity. Connection is returned to the pool if stream was read up to the end. Otherwise (e.g.
+	 * decoder didn't read trailing bytes of image) up to {@value #MAX_SKIPPED_BYTE_COUNT} remaining bytes are read on
+	 * stream closing to reach the end. If the rest of image is larger then connection is closed (the rest of image
+	 * isn't downloaded uselessly).
+	 */
+	private class ConnectionReleasingInputStream extends FilterInputStream {
+
+		private final HttpGet httpRequest;
+		private final URI imageUri;
+		private final long startTime;
+		private final long latency;
+		private long byteCount = 0;
+		private boolean endReached = false;
+		private boolean closed = false;
+
+		ConnectionReleasingInputStream(InputStream in, HttpGet httpRequest, URI imageUri, long startTime, long latency) {
+			super(in);
+			this.httpRequest = httpRequest;
+			this.imageUri = imageUri;
+			this.startTime = startTime;
+			this.latency = latency;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = in.read();
+			if (b == -1) {
+				endReached = true;
+			} else {
+				byteCount++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int count) throws IOException {
+			int readCount = in.read(buffer, offset, count);
+			if (readCount == -1) {
+				endReached = true;
+			} else {
+				byteCount += readCount;
+			}
+			return readCount;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) return;
+			closed = true;
+
+			if (!endReached) {
+				skipRemainingBytes();
+			}
+			if (endReached) {
+				in.close(); // Releases connection to the pool
+			} else {
+				httpRequest.abort();
+			}
+			DownloadStatsListener listener = statsListener;
+			if (listener != null) {
+				listener.onRequestFinished(imageUri, byteCount, latency, SystemClock.uptimeMillis() - startTime);
+			}
+		}
+
+		/** Reads up to {@value #MAX_SKIPPED_BYTE_COUNT} remaining bytes, so connection can be kept alive */
+		private void skipRemainingBytes() {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			try {
+				int skippedByteCount = 0;
+				while (skippedByteCount < MAX_SKIPPED_BYTE_COUNT) {
+					int readCount = read(buffer, 0, Math.min(buffer.length, MAX_SKIPPED_BYTE_COUNT - skippedByteCount));
+					if (readCount == -1) break;
+					skippedByteCount += readCount;
+				}
+			} catch (IOException e) {
+				endReached = false; // Connection is broken, it can't be reused
+			}
+		}
 	}
 }
@@ -0,0 +1,36 @@
+package com.nostra13.universalimageloader.core.download;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Signals that server responded with unexpected HTTP status. {@linkplain #isImageGone() "Not Found" and "Gone"} statuses
+ * mean image was deleted from server, so using of stale cached image doesn't make sense. Other statuses (e.g. server
+ * error or "Too Many Requests") are transient like other {@link IOException IOExceptions} of downloading.
+ */
+public class HttpStatusException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int HTTP_NOT_FOUND = 404;
+	private static final int HTTP_GONE = 410;
+
+	private static final String ERROR_HTTP_STATUS = "Unexpected HTTP status %d for %s";
+
+	private final int statusCode;
+
+	public HttpStatusException(int statusCode, URI imageUri) {
+		super(String.format(ERROR_HTTP_STATUS, statusCode, imageUri));
+		this.statusCode = statusCode;
+	}
+
+	/** Returns HTTP status code of response */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/** Returns <b>true</b> - if status means image doesn't exist on server ("Not Found" or "Gone") */
+	public boolean isImageGone() {
+		return statusCode == HTTP_NOT_FOUND || statusCode == HTTP_GONE;
+	}
+}
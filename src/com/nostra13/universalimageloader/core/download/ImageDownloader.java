@@ -1,10 +1,14 @@
 package com.nostra13.universalimageloader.core.download;
 
 import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 
+import com.nostra13.universalimageloader.core.assist.MappedFileInputStream;
+
 /**
  * Provides retrieving of {@link InputStream} of image by URI.
  * 
@@ -18,6 +22,21 @@ public abstract class ImageDownloader {
 	protected static final String PROTOCOL_HTTPS = "https";
 	protected static final String PROTOCOL_FTP = "ftp";
 
+	protected static final String HEADER_RANGE = "Range";
+	protected static final String HEADER_CONTENT_RANGE = "Content-Range";
+	protected static final String RANGE_FORMAT = "bytes=%d-";
+	private static final String CONTENT_RANGE_PREFIX_FORMAT = "bytes %d-";
+
+	protected static final String HEADER_ETAG = "ETag";
+	protected static final String HEADER_LAST_MODIFIED = "Last-Modified";
+	protected static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+	protected static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+	protected static final String HEADER_IF_RANGE = "If-Range";
+	private static final String WEAK_ETAG_PREFIX = "W/";
+
+	/** Max size of file which is mapped into memory (in bytes): {@value} */
+	protected static final int MAX_MAPPED_FILE_SIZE = 1024 * 1024;
+
 	/** Retrieves {@link InputStream} of image by URI. Image can be located as in the network and on local file system. */
 	public InputStream getStream(URI imageUri) throws IOException {
 		String scheme = imageUri.getScheme();
@@ -30,6 +49,51 @@ public abstract class ImageDownloader {
 		}
 	}
 
+	/**
+	 * Retrieves image by URI starting from defined byte. Used to resume interrupted image downloading. Range request is
+	 * conditional ("If-Range"): if image was modified since its first part was received then whole new image is
+	 * retrieved.
+	 * 
+	 * @param offset
+	 *            Count of bytes which should be skipped (they were retrieved already)
+	 * @param validators
+	 *            Validators of image which was received partially
+	 * @return Response which contains image bytes starting from {@linkplain ImageResponse#getOffset() its offset}
+	 *         (<b>offset</b> or 0 if image was modified) or <b>null</b> if image can't be retrieved partially (whole
+	 *         image should be retrieved by {@link #getResponse(URI, ImageValidators)} then). Partial image can't be
+	 *         retrieved without validators.
+	 */
+	public ImageResponse getResponse(URI imageUri, long offset, ImageValidators validators) throws IOException {
+		if (offset <= 0 || getIfRangeValue(validators) == null) {
+			return null;
+		}
+		String scheme = imageUri.getScheme();
+		if (PROTOCOL_HTTP.equals(scheme) || PROTOCOL_HTTPS.equals(scheme)) {
+			return getResponseFromNetwork(imageUri, offset, validators);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Retrieves image by URI with its {@linkplain ImageValidators validators}. If <b>validators</b> are defined then
+	 * network request is conditional: image isn't retrieved if it wasn't modified since it was received with these
+	 * validators.
+	 * 
+	 * @param validators
+	 *            Validators of previously received image or <b>null</b> (image is retrieved unconditionally then)
+	 * @return Response which contains image stream or which is {@linkplain ImageResponse#isNotModified() "not
+	 *         modified"} answer
+	 */
+	public ImageResponse getResponse(URI imageUri, ImageValidators validators) throws IOException {
+		String scheme = imageUri.getScheme();
+		if (PROTOCOL_HTTP.equals(scheme) || PROTOCOL_HTTPS.equals(scheme)) {
+			return getResponseFromNetwork(imageUri, validators);
+		} else {
+			return new ImageResponse(getStream(imageUri), null);
+		}
+	}
+
 	/**
 	 * Retrieves {@link InputStream} of image by URI from other source. Should be overriden by successors to implement
 	 * image downloading from special sources (not local file and not web URL).
@@ -41,9 +105,58 @@ public abstract class ImageDownloader {
 	/** Retrieves {@link InputStream} of image by URI (image is located in the network) */
 	protected abstract InputStream getStreamFromNetwork(URI imageUri) throws IOException;
 
-	/** Retrieves {@link InputStream} of image by URI (image is located on the local file system or SD card) */
+	/**
+	 * Retrieves image by URI (image is located in the network) with its validators. Should be overriden by successors
+	 * which support conditional requests. By default image is retrieved unconditionally and validators are unknown.
+	 */
+	protected ImageResponse getResponseFromNetwork(URI imageUri, ImageValidators validators) throws IOException {
+		return new ImageResponse(getStreamFromNetwork(imageUri), null);
+	}
+
+	/**
+	 * Retrieves image by URI (image is located in the network) starting from defined byte. Should be overriden by
+	 * successors which support HTTP range requests. Request should contain "If-Range" header with
+	 * {@linkplain #getIfRangeValue(ImageValidators) value of validators}.
+	 * 
+	 * @return Response which contains image bytes starting from <b>offset</b>, or whole image if it was modified, or
+	 *         <b>null</b> if server doesn't return requested range
+	 */
+	protected ImageResponse getResponseFromNetwork(URI imageUri, long offset, ImageValidators validators) throws IOException {
+		return null;
+	}
+
+	/**
+	 * Retrieves {@link InputStream} of image by URI (image is located on the local file system or SD card). File which
+	 * isn't larger than {@link #MAX_MAPPED_FILE_SIZE} is {@linkplain MappedFileInputStream mapped into memory}, so
+	 * stream supports mark/reset for the whole file. Larger file is read through buffered stream (it isn't worth to
+	 * hold mapping of big file, e.g. photo from SD card, until GC unmaps it).
+	 */
 	protected InputStream getStreamFromFile(URI imageUri) throws IOException {
-		return new BufferedInputStream(imageUri.toURL().openStream());
+		File imageFile = new File(imageUri);
+		if (imageFile.length() <= MAX_MAPPED_FILE_SIZE) {
+			return new MappedFileInputStream(imageFile);
+		} else {
+			return new BufferedInputStream(new FileInputStream(imageFile));
+		}
+	}
+
+	/**
+	 * Returns value of "If-Range" request header for validators: strong ETag or "Last-Modified" date. Returns
+	 * <b>null</b> if validators can't be used for range request.
+	 */
+	protected static String getIfRangeValue(ImageValidators validators) {
+		if (validators == null) return null;
+
+		String eTag = validators.getETag();
+		if (eTag != null && !eTag.startsWith(WEAK_ETAG_PREFIX)) {
+			return eTag;
+		}
+		return validators.getLastModified();
+	}
+
+	/** Returns <b>true</b> - if value of "Content-Range" response header denotes range which starts from <b>offset</b> */
+	protected static boolean isContentRangeStartedFrom(String contentRange, long offset) {
+		return contentRange != null && contentRange.startsWith(String.format(CONTENT_RANGE_PREFIX_FORMAT, offset));
 	}
 
 	/** Creates {@linkplain URLConnectionImageDownloader default implementation} of ImageDownloader */
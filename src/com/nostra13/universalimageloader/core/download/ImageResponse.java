@@ -0,0 +1,59 @@
+package com.nostra13.universalimageloader.core.download;
+
+import java.io.InputStream;
+
+/**
+ * Response of {@linkplain ImageDownloader#getResponse(java.net.URI, ImageValidators) (conditional) image request}:
+ * stream of image and its validators, or "not modified" answer. Response of
+ * {@linkplain ImageDownloader#getResponse(java.net.URI, long, ImageValidators) range request} can contain part of image.
+ */
+public final class ImageResponse {
+
+	private final InputStream stream;
+	private final ImageValidators validators;
+	private final long offset;
+
+	/**
+	 * @param stream
+	 *            Stream of image. <b>null</b> - if image wasn't modified since it was received with request validators.
+	 * @param validators
+	 *            Validators of image (can be <b>null</b> if they are unknown)
+	 */
+	public ImageResponse(InputStream stream, ImageValidators validators) {
+		this(stream, validators, 0);
+	}
+
+	/**
+	 * @param stream
+	 *            Stream of image part
+	 * @param validators
+	 *            Validators of image (can be <b>null</b> if they are unknown)
+	 * @param offset
+	 *            Position of the first byte of stream in image
+	 */
+	public ImageResponse(InputStream stream, ImageValidators validators, long offset) {
+		this.stream = stream;
+		this.validators = validators;
+		this.offset = offset;
+	}
+
+	/** Returns stream of image or <b>null</b> if image wasn't modified */
+	public InputStream getStream() {
+		return stream;
+	}
+
+	/** Returns validators of image or <b>null</b> if they are unknown */
+	public ImageValidators getValidators() {
+		return validators;
+	}
+
+	/** Returns position of the first byte of stream in image (0 - if stream contains whole image) */
+	public long getOffset() {
+		return offset;
+	}
+
+	/** Returns <b>true</b> - if image wasn't modified since it was received with request validators */
+	public boolean isNotModified() {
+		return stream == null;
+	}
+}
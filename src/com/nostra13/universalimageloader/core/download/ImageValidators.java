@@ -0,0 +1,85 @@
+package com.nostra13.universalimageloader.core.download;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * HTTP validators of image ("ETag" and "Last-Modified" response header values). They are stored next to cached image
+ * and sent in conditional request when cached image expires, so unchanged image isn't downloaded again.
+ * 
+ * @see ImageResponse
+ */
+public final class ImageValidators {
+
+	private static final String CHARSET = "UTF-8";
+
+	private final String eTag;
+	private final String lastModified;
+
+	/**
+	 * @param eTag
+	 *            Value of "ETag" header (can be <b>null</b>)
+	 * @param lastModified
+	 *            Value of "Last-Modified" header (can be <b>null</b>)
+	 */
+	public ImageValidators(String eTag, String lastModified) {
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+	}
+
+	/** Returns value of "ETag" header or <b>null</b> if server didn't send it */
+	public String getETag() {
+		return eTag;
+	}
+
+	/** Returns value of "Last-Modified" header or <b>null</b> if server didn't send it */
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	/** Returns <b>true</b> - if there are no validators (image can't be revalidated) */
+	public boolean isEmpty() {
+		return eTag == null && lastModified == null;
+	}
+
+	/** Writes "ETag" and "Last-Modified" values into file, one per line (empty line for missing value) */
+	public void writeTo(File file) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), CHARSET));
+		try {
+			writer.write(eTag != null ? eTag : "");
+			writer.write('\n');
+			writer.write(lastModified != null ? lastModified : "");
+			writer.write('\n');
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Reads validators which were {@linkplain #writeTo(File) written} into file
+	 * 
+	 * @return Validators or <b>null</b> if file contains no validators
+	 */
+	public static ImageValidators readFrom(File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+		try {
+			String eTag = reader.readLine();
+			String lastModified = reader.readLine();
+			ImageValidators validators = new ImageValidators(emptyToNull(eTag), emptyToNull(lastModified));
+			return validators.isEmpty() ? null : validators;
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static String emptyToNull(String value) {
+		return value == null || value.length() == 0 ? null : value;
+	}
+}
@@ -3,6 +3,7 @@ package com.nostra13.universalimageloader.core.download;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URLConnection;
 
@@ -39,4 +40,57 @@ public class URLConnectionImageDownloader extends ImageDownloader {
 		conn.setReadTimeout(readTimeout);
 		return new FlushedInputStream(new BufferedInputStream(conn.getInputStream()));
 	}
+
+	@Override
+	protected ImageResponse getResponseFromNetwork(URI imageUri, ImageValidators validators) throws IOException {
+		URLConnection conn = imageUri.toURL().openConnection();
+		if (!(conn instanceof HttpURLConnection)) {
+			return super.getResponseFromNetwork(imageUri, validators);
+		}
+		HttpURLConnection httpConn = (HttpURLConnection) conn;
+		httpConn.setConnectTimeout(connectTimeout);
+		httpConn.setReadTimeout(readTimeout);
+		if (validators != null) {
+			if (validators.getETag() != null) httpConn.setRequestProperty(HEADER_IF_NONE_MATCH, validators.getETag());
+			if (validators.getLastModified() != null) httpConn.setRequestProperty(HEADER_IF_MODIFIED_SINCE, validators.getLastModified());
+		}
+		int statusCode = httpConn.getResponseCode();
+		if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED && validators != null) {
+			httpConn.getInputStream().close(); // Response has no body
+			return new ImageResponse(null, validators);
+		}
+		if (statusCode != HttpURLConnection.HTTP_OK) {
+			httpConn.disconnect();
+			throw new HttpStatusException(statusCode, imageUri);
+		}
+		InputStream imageStream = new FlushedInputStream(new BufferedInputStream(httpConn.getInputStream()));
+		ImageValidators responseValidators = new ImageValidators(httpConn.getHeaderField(HEADER_ETAG), httpConn.getHeaderField(HEADER_LAST_MODIFIED));
+		return new ImageResponse(imageStream, responseValidators);
+	}
+
+	@Override
+	protected ImageResponse getResponseFromNetwork(URI imageUri, long offset, ImageValidators validators) throws IOException {
+		URLConnection conn = imageUri.toURL().openConnection();
+		if (!(conn instanceof HttpURLConnection)) {
+			return null;
+		}
+		HttpURLConnection httpConn = (HttpURLConnection) conn;
+		httpConn.setConnectTimeout(connectTimeout);
+		httpConn.setReadTimeout(readTimeout);
+		httpConn.setRequestProperty(HEADER_RANGE, String.format(RANGE_FORMAT, offset));
+		httpConn.setRequestProperty(HEADER_IF_RANGE, getIfRangeValue(validators));
+		int statusCode = httpConn.getResponseCode();
+		if (statusCode == HttpURLConnection.HTTP_OK) {
+			// Image was modified (or server ignored range), whole image is received
+			InputStream imageStream = new FlushedInputStream(new BufferedInputStream(httpConn.getInputStream()));
+			ImageValidators responseValidators = new ImageValidators(httpConn.getHeaderField(HEADER_ETAG), httpConn.getHeaderField(HEADER_LAST_MODIFIED));
+			return new ImageResponse(imageStream, responseValidators);
+		}
+		if (statusCode != HttpURLConnection.HTTP_PARTIAL || !isContentRangeStartedFrom(httpConn.getHeaderField(HEADER_CONTENT_RANGE), offset)) {
+			httpConn.disconnect();
+			return null;
+		}
+		InputStream imageStream = new FlushedInputStream(new BufferedInputStream(httpConn.getInputStream()));
+		return new ImageResponse(imageStream, validators, offset);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.nostra13.universalimageloader.core.process;
+
+import android.graphics.Bitmap;
+
+/**
+ * Post-processes decoded bitmap before it's cached in memory and displayed (i.e. makes circular avatars). Processing is
+ * run on display image thread, processed bitmap is cached in memory under its own key (see {@link #getKey()}), so the
+ * same image is processed once for all views.
+ * 
+ * @see com.nostra13.universalimageloader.core.DisplayImageOptions.Builder#processor(BitmapProcessor)
+ */
+public interface BitmapProcessor {
+
+	/**
+	 * Processes bitmap. Is called on display image thread.
+	 * 
+	 * @param bitmap
+	 *            Decoded bitmap. It's recycled after processing if processor returns another bitmap.
+	 * @return Processed bitmap (can be the incoming bitmap)
+	 */
+	Bitmap process(Bitmap bitmap);
+
+	/**
+	 * Returns key which identifies result of processing. It's a part of memory cache key, so processors which produce
+	 * different results must have different keys.
+	 */
+	String getKey();
+}
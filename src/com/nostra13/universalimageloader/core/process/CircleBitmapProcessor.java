@@ -0,0 +1,42 @@
+package com.nostra13.universalimageloader.core.process;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+
+/**
+ * Crops center square of bitmap and makes it circular (pixels outside of the circle are transparent)
+ */
+public class CircleBitmapProcessor implements BitmapProcessor {
+
+	private static final String KEY = "circle";
+
+	@Override
+	public Bitmap process(Bitmap bitmap) {
+		int width = bitmap.getWidth();
+		int height = bitmap.getHeight();
+		int size = Math.min(width, height);
+
+		Bitmap output = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+		Canvas canvas = new Canvas(output);
+		Paint paint = new Paint();
+		paint.setAntiAlias(true);
+		paint.setFilterBitmap(true);
+		canvas.drawCircle(size / 2f, size / 2f, size / 2f, paint);
+
+		// Keep only pixels of source image which overlap the circle
+		paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
+		int left = (width - size) / 2;
+		int top = (height - size) / 2;
+		canvas.drawBitmap(bitmap, new Rect(left, top, left + size, top + size), new Rect(0, 0, size, size), paint);
+		return output;
+	}
+
+	@Override
+	public String getKey() {
+		return KEY;
+	}
+}